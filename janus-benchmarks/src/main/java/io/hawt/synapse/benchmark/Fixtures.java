@@ -0,0 +1,78 @@
+package io.hawt.synapse.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.utils.Serialization;
+
+/**
+ * Loads the offline fixtures that the benchmarks run against.
+ */
+public final class Fixtures {
+
+    static final String MULTI_CONTAINER_POD = "pods/jolokia-multi-container-pod.yaml";
+
+    /**
+     * A self-signed certificate and its PKCS#8 key, standing in for the proxy certificate.
+     */
+    public static final String PROXY_CERTIFICATE = "tls/proxy.crt";
+
+    public static final String PROXY_KEY = "tls/proxy.key";
+
+    private Fixtures() {
+    }
+
+    public static InputStream resource(String name) {
+        InputStream stream = Fixtures.class.getClassLoader().getResourceAsStream(name);
+        if (stream == null) {
+            throw new IllegalStateException("Missing benchmark fixture " + name);
+        }
+        return stream;
+    }
+
+    static Pod pod(String name) {
+        try (InputStream stream = resource(name)) {
+            return Serialization.unmarshal(stream, Pod.class);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return a copy of the given pod whose containers expose no jolokia port
+     */
+    static Pod withoutJolokiaPort(Pod pod) {
+        Pod copy = new PodBuilder(pod).build();
+        copy.getSpec().getContainers()
+                .forEach(container -> container.getPorts().removeIf(port -> "jolokia".equals(port.getName())));
+        return copy;
+    }
+
+    /**
+     * @return a copy of the given pod without the uid so that its url is always resolved afresh
+     */
+    static Pod withoutUid(Pod pod) {
+        return new PodBuilder(pod).editMetadata().withUid(null).endMetadata().build();
+    }
+
+    /**
+     * Copies a fixture to a file in the given directory, for the code that reads files rather than resources.
+     *
+     * @return the path of the file
+     */
+    public static Path file(String name, Path directory) {
+        Path file = directory.resolve(Path.of(name).getFileName());
+        try (InputStream stream = resource(name)) {
+            Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return file;
+    }
+}
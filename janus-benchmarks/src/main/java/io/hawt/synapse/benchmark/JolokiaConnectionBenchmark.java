@@ -0,0 +1,90 @@
+package io.hawt.synapse.benchmark;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.hawt.synapse.jolokia.JolokiaConnectionImpl;
+
+/**
+ * Compares the typed traversal of the pod model used to find the jolokia port
+ * with the former approach of serializing the pod to JSON and querying it with
+ * JsonPath. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JolokiaConnectionBenchmark {
+
+    private static final String JOLOKIA_PORT_QUERY = "$.spec.containers[*].ports[?(@.name=='jolokia')]";
+
+    @Param({ "jolokia", "plain" })
+    public String podKind;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JolokiaConnectionImpl connection;
+
+    private Pod pod;
+
+    private Pod unidentifiedPod;
+
+    @Setup
+    public void setup() {
+        connection = new JolokiaConnectionImpl();
+
+        Pod fixture = Fixtures.pod(Fixtures.MULTI_CONTAINER_POD);
+        pod = "jolokia".equals(podKind) ? fixture : Fixtures.withoutJolokiaPort(fixture);
+        unidentifiedPod = Fixtures.withoutUid(pod);
+    }
+
+    /**
+     * The pod to JSON to JsonPath round trip that hasJolokiaPort used to make.
+     */
+    @Benchmark
+    public boolean hasJolokiaPortJsonPath() throws Exception {
+        String podAsJson = objectMapper.writeValueAsString(pod);
+        List<Object> foundPorts = JsonPath.read(podAsJson, JOLOKIA_PORT_QUERY);
+        return !foundPorts.isEmpty();
+    }
+
+    @Benchmark
+    public boolean hasJolokiaPort() {
+        return connection.hasJolokiaPort(pod);
+    }
+
+    /**
+     * Resolution of a pod that carries no uid, so nothing is memoized.
+     */
+    @Benchmark
+    public URL connectionURL() throws Exception {
+        return connection.connectionURL(unidentifiedPod);
+    }
+
+    /**
+     * Resolution of a pod already seen at the same resourceVersion.
+     */
+    @Benchmark
+    public URL connectionURLMemoized() throws Exception {
+        return connection.connectionURL(pod);
+    }
+}
@@ -0,0 +1,64 @@
+package io.hawt.synapse.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process stand-in for a jolokia agent that answers every request with
+ * the same response, so round trips can be measured without a network.
+ */
+public final class StubJolokiaAgent implements AutoCloseable {
+
+    public static final String VERSION_RESPONSE = "{\"request\":{\"type\":\"version\"},\"value\":{\"agent\":\"2.3.0\",\"protocol\":\"8.0\",\"config\":{},\"info\":{}},\"status\":200,\"timestamp\":1700000000}";
+
+    private final HttpServer server;
+
+    private final byte[] response;
+
+    private StubJolokiaAgent(HttpServer server, String response) {
+        this.server = server;
+        this.response = response.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static StubJolokiaAgent start(String response) throws IOException {
+        // Otherwise delayed acks stall every response by tens of milliseconds
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        StubJolokiaAgent agent = new StubJolokiaAgent(server, response);
+        server.createContext("/", agent::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return agent;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            input.readAllBytes();
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(response);
+        }
+    }
+
+    /**
+     * @return the url of the agent's jolokia endpoint
+     */
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/jolokia/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
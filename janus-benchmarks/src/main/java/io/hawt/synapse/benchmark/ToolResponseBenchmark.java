@@ -0,0 +1,108 @@
+package io.hawt.synapse.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.hawt.synapse.janus.JolokiaRequest;
+import io.hawt.synapse.janus.JolokiaResult;
+import io.quarkiverse.mcp.server.EmbeddedResource;
+import io.quarkiverse.mcp.server.TextResourceContents;
+import io.quarkiverse.mcp.server.ToolResponse;
+import io.vertx.core.json.Json;
+
+/**
+ * Measures turning the results of a bulk read into the response of the
+ * readAttributes tool: rendering them as JSON, checking the response budget,
+ * wrapping them in a {@link TextResourceContents} and encoding the tool
+ * response as the MCP server does before writing it to the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolResponseBenchmark {
+
+    @Param({ "10", "1000" })
+    public int attributeCount;
+
+    private List<JolokiaResult> results;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        results = new ArrayList<>(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+            JolokiaRequest request = JolokiaRequest.read("org.apache.camel:context=camel-1,type=routes,name=\"route-" + i
+                    + "\"", i % 2 == 0 ? "ExchangesTotal" : "LastProcessingTime");
+            if (i % 10 == 9) {
+                results.add(JolokiaResult.failure(request, "javax.management.AttributeNotFoundException : No such attribute"));
+            } else if (i % 3 == 0) {
+                JSONObject usage = new JSONObject();
+                usage.put("init", 268435456L);
+                usage.put("used", 104857600L + i);
+                usage.put("committed", 268435456L);
+                usage.put("max", 4294967296L);
+                results.add(JolokiaResult.success(request, usage));
+            } else {
+                results.add(JolokiaResult.success(request, 1000L + i));
+            }
+        }
+        json = render();
+    }
+
+    /**
+     * The results rendered as the JSON text of the resource.
+     */
+    @Benchmark
+    public String render() {
+        JSONArray values = new JSONArray(results.size());
+        for (JolokiaResult result : results) {
+            values.add(result.toJSON());
+        }
+        return values.toString();
+    }
+
+    /**
+     * The rendered JSON checked against the budget and wrapped as a tool response.
+     */
+    @Benchmark
+    public ToolResponse toolResponse() {
+        return toolResponse(json);
+    }
+
+    /**
+     * The whole path from the results to the encoded tool response.
+     */
+    @Benchmark
+    public String encode() {
+        return Json.encode(toolResponse(render()));
+    }
+
+    private static ToolResponse toolResponse(String json) {
+        int size = json.getBytes(StandardCharsets.UTF_8).length;
+        if (size > 262144) {
+            return ToolResponse.error("The response is " + size + " bytes which exceeds the response budget");
+        }
+        return ToolResponse.success(new EmbeddedResource(new TextResourceContents("jolokia://pod/read", json,
+                "application/json")));
+    }
+}
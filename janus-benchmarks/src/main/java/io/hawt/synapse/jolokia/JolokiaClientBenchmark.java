@@ -0,0 +1,139 @@
+package io.hawt.synapse.jolokia;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.jolokia.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.hawt.synapse.benchmark.Fixtures;
+import io.hawt.synapse.benchmark.StubJolokiaAgent;
+import io.hawt.synapse.janus.JolokiaService;
+import io.hawt.synapse.janus.NoopTracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.mutiny.core.Vertx;
+
+/**
+ * Measures what each tool call pays to get a jolokia client: the construction
+ * of the client on the shared transports and a version round trip to an
+ * in-process stub agent.
+ *
+ * The beans are wired by hand as the CDI container would, which is why this
+ * benchmark lives in the package of the classes it measures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JolokiaClientBenchmark {
+
+    private static final String TOKEN = "benchmark-token";
+
+    @Param({ "vertx", "apache" })
+    public String clientType;
+
+    private Path tlsDirectory;
+
+    private Path certificate;
+
+    private Path key;
+
+    private ProxyTLSContext proxyTLSContext;
+
+    private Vertx vertx;
+
+    private JolokiaHttpTransport httpTransport;
+
+    private JolokiaWebTransport webTransport;
+
+    private JolokiaClientFactory factory;
+
+    private StubJolokiaAgent agent;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        tlsDirectory = Files.createTempDirectory("janus-benchmark-tls");
+        certificate = Fixtures.file(Fixtures.PROXY_CERTIFICATE, tlsDirectory);
+        key = Fixtures.file(Fixtures.PROXY_KEY, tlsDirectory);
+
+        proxyTLSContext = new ProxyTLSContext();
+        proxyTLSContext.certificatePath = certificate.toString();
+        proxyTLSContext.keyPath = key.toString();
+        proxyTLSContext.checkInterval = Duration.ofSeconds(30);
+
+        httpTransport = new JolokiaHttpTransport();
+        httpTransport.proxyTLSContext = proxyTLSContext;
+        httpTransport.maxConnections = 200;
+        httpTransport.maxConnectionsPerRoute = 10;
+        httpTransport.connectTimeout = Duration.ofSeconds(5);
+        httpTransport.socketTimeout = Duration.ofSeconds(30);
+        httpTransport.keepAlive = Duration.ofSeconds(30);
+        httpTransport.init();
+
+        vertx = Vertx.vertx();
+        webTransport = new JolokiaWebTransport();
+        webTransport.vertx = vertx;
+        webTransport.proxyTLSContext = proxyTLSContext;
+        webTransport.maxConnectionsPerRoute = 10;
+        webTransport.connectTimeout = Duration.ofSeconds(5);
+        webTransport.socketTimeout = Duration.ofSeconds(30);
+        webTransport.keepAlive = Duration.ofSeconds(30);
+        webTransport.init();
+
+        factory = new JolokiaClientFactory();
+        factory.httpTransport = httpTransport;
+        factory.webTransport = webTransport;
+        factory.registry = new SimpleMeterRegistry();
+        factory.tracing = NoopTracing.create();
+        factory.clientType = clientType;
+        factory.maximumEndpoints = 1000;
+        factory.endpointExpiry = Duration.ofMinutes(30);
+        factory.init();
+
+        agent = StubJolokiaAgent.start(StubJolokiaAgent.VERSION_RESPONSE);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        agent.close();
+        httpTransport.close();
+        webTransport.close();
+        vertx.closeAndAwait();
+        Files.deleteIfExists(certificate);
+        Files.deleteIfExists(key);
+        Files.deleteIfExists(tlsDirectory);
+    }
+
+    /**
+     * The client that each tool call creates, for an endpoint already held by the factory.
+     */
+    @Benchmark
+    public JolokiaService createService() throws Exception {
+        return factory.createService(agent.url(), TOKEN);
+    }
+
+    /**
+     * A client created and used for one request, over pooled keep-alive connections.
+     */
+    @Benchmark
+    public Optional<JSONObject> version() throws Exception {
+        return factory.createService(agent.url(), TOKEN).version();
+    }
+}
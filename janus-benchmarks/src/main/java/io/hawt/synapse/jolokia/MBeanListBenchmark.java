@@ -0,0 +1,148 @@
+package io.hawt.synapse.jolokia;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+import org.jolokia.json.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compares fetching the names of all MBeans with a search, as the MBean list
+ * now does, with the former approach of fetching the whole list tree, with
+ * the attributes and operations of every MBean, and flattening it into names.
+ * Both include parsing the agent's response.
+ *
+ * The MBeans are those of a service with a number of Camel contexts, each with
+ * its routes, endpoints and processors, besides the platform MBeans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MBeanListBenchmark {
+
+    @Param({ "500", "5000" })
+    public int mbeanCount;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private String listResponse;
+
+    private String searchResponse;
+
+    private String notificationsUnsupported;
+
+    @Setup
+    public void setup() {
+        List<String> names = mbeanNames(mbeanCount);
+
+        JSONObject tree = new JSONObject();
+        for (String name : names) {
+            String[] parts = name.split(":", 2);
+            JSONObject domain = (JSONObject) tree.computeIfAbsent(parts[0], key -> new JSONObject());
+            domain.put(parts[1], mbeanInfo());
+        }
+        listResponse = response(tree).toString();
+        searchResponse = response(new JSONArray(names)).toString();
+
+        JSONObject error = new JSONObject();
+        error.put("status", 404);
+        error.put("error_type", "java.lang.UnsupportedOperationException");
+        error.put("error", "Notifications are not supported");
+        notificationsUnsupported = new JSONArray(List.of(error)).toString();
+    }
+
+    /**
+     * The list tree flattened into names, as listMBeans used to do.
+     */
+    @Benchmark
+    public List<String> flattenListTree() throws Exception {
+        JSONObject domains = (JSONObject) ((JSONObject) new JSONParser().parse(listResponse)).get("value");
+        return domains.entrySet().stream().flatMap(domain -> ((JSONObject) domain.getValue())
+                .keySet().stream().map(props -> domain.getKey() + ":" + props)).collect(Collectors.toList());
+    }
+
+    /**
+     * The full fetch of the MBean list, of an agent without notifications.
+     */
+    @Benchmark
+    public List<String> search() throws Exception {
+        return new MBeanListCache(registry).getMBeans(requests -> {
+            String type = (String) ((JSONObject) requests.get(0)).get("type");
+            return (JSONArray) new JSONParser().parse("search".equals(type)
+                    ? "[" + searchResponse + "]"
+                    : notificationsUnsupported);
+        });
+    }
+
+    private static JSONObject response(Object value) {
+        JSONObject response = new JSONObject();
+        response.put("value", value);
+        response.put("status", 200);
+        response.put("timestamp", 1700000000);
+        return response;
+    }
+
+    private static List<String> mbeanNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (String type : List.of("Memory", "Runtime", "Threading", "OperatingSystem", "ClassLoading", "Compilation")) {
+            names.add("java.lang:type=" + type);
+        }
+
+        String[] kinds = { "routes", "endpoints", "processors", "consumers", "services" };
+        for (int i = 0; names.size() < count; i++) {
+            int context = i / 200;
+            String kind = kinds[i % kinds.length];
+            names.add(String.format("org.apache.camel:context=camel-%d,type=%s,name=\"%s-%d\"", context, kind,
+                    kind.substring(0, kind.length() - 1), i));
+        }
+        return names;
+    }
+
+    private static JSONObject mbeanInfo() {
+        JSONObject attributes = new JSONObject();
+        for (String name : List.of("State", "Uptime", "ExchangesTotal", "ExchangesFailed", "MeanProcessingTime",
+                "Description")) {
+            attributes.put(name, object(Map.of("type", "java.lang.String", "rw", false,
+                    "desc", "The " + name + " of the managed object")));
+        }
+
+        JSONObject operations = new JSONObject();
+        for (String name : List.of("start", "stop", "reset")) {
+            operations.put(name, object(Map.of("args", new JSONArray(), "ret", "void",
+                    "desc", name + " the managed object")));
+        }
+
+        JSONObject info = new JSONObject();
+        info.put("desc", "A managed Camel object");
+        info.put("attr", attributes);
+        info.put("op", operations);
+        return info;
+    }
+
+    private static JSONObject object(Map<String, Object> fields) {
+        JSONObject object = new JSONObject();
+        object.putAll(fields);
+        return object;
+    }
+}
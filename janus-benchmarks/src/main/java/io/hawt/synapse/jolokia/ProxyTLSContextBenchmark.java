@@ -0,0 +1,80 @@
+package io.hawt.synapse.jolokia;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.hawt.synapse.benchmark.Fixtures;
+
+/**
+ * Compares building the permissive SSL context from the proxy certificate and
+ * key with looking up the one held by {@link ProxyTLSContext}, as every TLS
+ * connection to a jolokia agent does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProxyTLSContextBenchmark {
+
+    private Path directory;
+
+    private Path certificate;
+
+    private Path key;
+
+    private ProxyTLSContext proxyTLSContext;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("janus-benchmark-tls");
+        certificate = Fixtures.file(Fixtures.PROXY_CERTIFICATE, directory);
+        key = Fixtures.file(Fixtures.PROXY_KEY, directory);
+
+        proxyTLSContext = new ProxyTLSContext();
+        proxyTLSContext.certificatePath = certificate.toString();
+        proxyTLSContext.keyPath = key.toString();
+        proxyTLSContext.checkInterval = Duration.ofSeconds(30);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        Files.deleteIfExists(certificate);
+        Files.deleteIfExists(key);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Parsing the certificate and key into a fresh SSL context, as on startup
+     * and whenever the mounted secret is rotated.
+     */
+    @Benchmark
+    public SSLContext createPermissiveTLSContext() throws Exception {
+        return ProxyTLSContext.createPermissiveTLSContext(certificate, key);
+    }
+
+    /**
+     * The SSL context as looked up between checks of the files.
+     */
+    @Benchmark
+    public SSLContext get() throws Exception {
+        return proxyTLSContext.get();
+    }
+}
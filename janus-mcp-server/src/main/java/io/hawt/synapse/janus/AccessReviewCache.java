@@ -0,0 +1,248 @@
+package io.hawt.synapse.janus;
+
+import java.time.Duration;
+
+import javax.naming.AuthenticationException;
+import javax.naming.NoPermissionException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.fabric8.kubernetes.api.model.authentication.UserInfo;
+import io.fabric8.kubernetes.api.model.authorization.v1.SubjectAccessReview;
+import io.fabric8.kubernetes.api.model.authorization.v1.SubjectAccessReviewBuilder;
+import io.fabric8.kubernetes.api.model.authorization.v1.SubjectAccessReviewStatus;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Checks that the caller may reach the pods of a namespace, by asking the
+ * Kubernetes API server in a {@link SubjectAccessReview} whether the user its
+ * token was reviewed as may proxy to them or list them, as it would before
+ * proxying the request itself.
+ *
+ * The decisions are cached, keyed by a SHA-256 hash of the token, the
+ * namespace and the access, so that repeated tool calls on the pods of a
+ * namespace cost a single review. Allowed decisions are kept for a short TTL,
+ * so that revoked permissions soon take effect, and denied ones for a shorter
+ * TTL still. Concurrent lookups of the same decision share a single review.
+ *
+ * The decisions are made for all the pods of a namespace rather than for each
+ * pod, so permissions restricted to named pods are not honoured.
+ */
+@ApplicationScoped
+public class AccessReviewCache {
+
+    private static final Logger LOG = Logger.getLogger(AccessReviewCache.class);
+
+    /**
+     * The access to the pods of a namespace that a tool needs.
+     */
+    public enum Access {
+        /**
+         * Proxying requests to the jolokia agents of the pods, i.e. get on pods/proxy.
+         */
+        PROXY("get", "proxy"),
+        /**
+         * Listing the pods, i.e. list on pods.
+         */
+        LIST("list", null);
+
+        private final String verb;
+
+        private final String subresource;
+
+        Access(String verb, String subresource) {
+            this.verb = verb;
+            this.subresource = subresource;
+        }
+
+        @Override
+        public String toString() {
+            return subresource != null ? verb + " pods/" + subresource : verb + " pods";
+        }
+    }
+
+    /**
+     * @param token     the hash of the bearer token
+     * @param namespace the namespace, empty for all namespaces
+     * @param access    the access asked for
+     */
+    record Key(String token, String namespace, Access access) {
+    }
+
+    /**
+     * The outcome of an access review.
+     *
+     * @param allowed   whether the API server allowed the access
+     * @param reason    the reason given by the API server, if any
+     * @param expiresAt epoch millis at which this outcome should no longer be trusted
+     */
+    record Decision(boolean allowed, String reason, long expiresAt) {
+    }
+
+    @Inject
+    KubernetesClient k8sClient;
+
+    @Inject
+    AuthenticationCache authenticationCache;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "janus.auth.access.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "janus.auth.access.cache.maximum-size", defaultValue = "10000")
+    long maximumSize;
+
+    @ConfigProperty(name = "janus.auth.access.cache.ttl", defaultValue = "30s")
+    Duration ttl;
+
+    @ConfigProperty(name = "janus.auth.access.cache.denied-ttl", defaultValue = "5s")
+    Duration deniedTtl;
+
+    private Cache<Key, Decision> decisions;
+
+    @PostConstruct
+    void init() {
+        decisions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.creating((Key key, Decision decision) -> Duration
+                        .ofMillis(Math.max(0, decision.expiresAt() - System.currentTimeMillis()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, decisions, "access-reviews");
+    }
+
+    @PreDestroy
+    void close() {
+        JanusMetrics.removeCacheMeters(registry, "access-reviews");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Authorizes the given bearer token for the access to the pods of the
+     * namespace, consulting the cache first. The token must authenticate.
+     *
+     * @param token     the raw bearer token
+     * @param namespace the namespace of the pods, or null for all namespaces
+     * @param access    the access asked for
+     * @throws AuthenticationException if the token is not authenticated
+     * @throws NoPermissionException   if the access is denied
+     */
+    public void authorize(String token, String namespace, Access access)
+            throws AuthenticationException, NoPermissionException {
+        if (!enabled) {
+            return;
+        }
+
+        Key key = new Key(AuthenticationCache.hash(token), namespace != null ? namespace : "", access);
+        Decision decision;
+        try {
+            // Concurrent callers with the same key block on the one review in flight
+            decision = decisions.get(key, k -> review(token, k));
+        } catch (Unauthenticated ex) {
+            throw ex.getCause();
+        }
+
+        if (!decision.allowed()) {
+            LOG.warnf("Access review denied %s in namespace '%s': %s", access, key.namespace(), decision.reason());
+            throw new NoPermissionException(String.format("Forbidden: the caller may not %s in %s.", access,
+                    namespace != null ? "the namespace '" + namespace + "'" : "all namespaces"));
+        }
+    }
+
+    /**
+     * @return the number of authorizations answered from the cache
+     */
+    public long hitCount() {
+        return decisions.stats().hitCount();
+    }
+
+    /**
+     * @return the number of authorizations that required an access review
+     */
+    public long missCount() {
+        return decisions.stats().missCount();
+    }
+
+    /**
+     * @return the underlying cache statistics
+     */
+    public CacheStats stats() {
+        return decisions.stats();
+    }
+
+    /**
+     * Discards all cached decisions.
+     */
+    public void invalidateAll() {
+        decisions.invalidateAll();
+    }
+
+    /**
+     * Carries an authentication failure out of the cache, which caches no
+     * decision when its loader throws.
+     */
+    private static final class Unauthenticated extends RuntimeException {
+
+        Unauthenticated(AuthenticationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized AuthenticationException getCause() {
+            return (AuthenticationException) super.getCause();
+        }
+    }
+
+    private Decision review(String token, Key key) {
+        // The user of the token is answered from the cache of the token reviews
+        UserInfo user;
+        try {
+            user = authenticationCache.authenticate(token);
+        } catch (AuthenticationException ex) {
+            throw new Unauthenticated(ex);
+        }
+
+        // Ask whether the user may reach the pods as the API server would were it proxying the request
+        SubjectAccessReview review = new SubjectAccessReviewBuilder()
+                .withNewSpec()
+                    .withUser(user != null ? user.getUsername() : null)
+                    .withUid(user != null ? user.getUid() : null)
+                    .withGroups(user != null ? user.getGroups() : null)
+                    .withExtra(user != null ? user.getExtra() : null)
+                    .withNewResourceAttributes()
+                        .withNamespace(key.namespace())
+                        .withVerb(key.access().verb)
+                        .withResource("pods")
+                        .withSubresource(key.access().subresource)
+                    .endResourceAttributes()
+                .endSpec()
+                .build();
+
+        SubjectAccessReview result = k8sClient.authorization().v1().subjectAccessReview().create(review);
+
+        long now = System.currentTimeMillis();
+        SubjectAccessReviewStatus status = result.getStatus();
+        if (status == null || !Boolean.TRUE.equals(status.getAllowed())) {
+            String reason = status != null ? status.getReason() : "Unknown";
+            return new Decision(false, reason, now + deniedTtl.toMillis());
+        }
+        return new Decision(true, null, now + ttl.toMillis());
+    }
+}
@@ -0,0 +1,478 @@
+package io.hawt.synapse.janus;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.AuthenticationException;
+import javax.naming.NoPermissionException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Scrapes subscribed attributes of pods in the background, keeping a bounded
+ * history of each so that an agent can look back over the recent past of an
+ * attribute without polling the pod itself.
+ *
+ * Each series belongs to the caller that subscribed to it, identified by a
+ * SHA-256 hash of its token: only that caller can list, read or unsubscribe
+ * it, and it is scraped with that caller's token, never with another's. The
+ * same attribute subscribed to by two callers is collected as two series.
+ *
+ * All the attributes of a pod subscribed to by a caller are scraped together,
+ * in one bulk request per interval. A pod whose previous scrape for the caller
+ * is still in flight is skipped rather than queued.
+ *
+ * Each series holds a ring buffer of a fixed capacity, so the memory of the
+ * collector is the number of series times the bytes of each. Once the memory
+ * budget is spent, subscribing to a new series evicts the series that was
+ * least recently subscribed to or read.
+ *
+ * A series is released, discarding its history, once it has not been read for
+ * the idle TTL, once its pod is gone, or once its namespace has moved to the
+ * shard of another replica. Before each scrape the token of the owner is
+ * authenticated and authorized to proxy to the pods of the namespace again, as
+ * a tool call would be: the series of a token that no longer authenticates are
+ * all released, and those of a namespace it may no longer proxy to with them.
+ */
+@ApplicationScoped
+public class AttributeCollector {
+
+    private static final Logger LOG = Logger.getLogger(AttributeCollector.class);
+
+    /**
+     * A pod whose attributes are scraped.
+     */
+    record PodKey(String namespace, String podName) {
+    }
+
+    /**
+     * The attributes of a pod scraped together, those of one owner.
+     */
+    record ScrapeKey(PodKey pod, String owner) {
+    }
+
+    /**
+     * A subscribed attribute together with its history.
+     */
+    public static class Series {
+        private final String id;
+        private final String owner;
+        private final PodKey pod;
+        private final String mbean;
+        private final String attribute;
+        private final String path;
+        private final AttributeHistory history;
+        private volatile long lastAccess;
+        private volatile String lastError;
+
+        Series(String id, String owner, PodKey pod, String mbean, String attribute, String path, int capacity) {
+            this.id = id;
+            this.owner = owner;
+            this.pod = pod;
+            this.mbean = mbean;
+            this.attribute = attribute;
+            this.path = path;
+            this.history = new AttributeHistory(capacity);
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public String namespace() {
+            return pod.namespace();
+        }
+
+        public String podName() {
+            return pod.podName();
+        }
+
+        public String mbean() {
+            return mbean;
+        }
+
+        public String attribute() {
+            return attribute;
+        }
+
+        /**
+         * @return the keys leading to the number in a composite value, or null
+         */
+        public String path() {
+            return path;
+        }
+
+        public AttributeHistory history() {
+            return history;
+        }
+
+        /**
+         * @return why the last scrape of the attribute failed, or null if it succeeded
+         */
+        public String lastError() {
+            return lastError;
+        }
+    }
+
+    @Inject
+    PodIndex podIndex;
+
+    @Inject
+    JolokiaServiceFactory jolokiaServiceFactory;
+
+    @Inject
+    AuthenticationCache authenticationCache;
+
+    @Inject
+    AccessReviewCache accessReviews;
+
+    @Inject
+    ShardCoordinator shards;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "janus.collector.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "janus.collector.interval", defaultValue = "15s")
+    Duration interval;
+
+    /**
+     * The number of values held by the history of each series.
+     */
+    @ConfigProperty(name = "janus.collector.capacity", defaultValue = "240")
+    int capacity;
+
+    /**
+     * The bytes that the histories of all series may take up together.
+     */
+    @ConfigProperty(name = "janus.collector.max-bytes", defaultValue = "16777216")
+    long maxBytes;
+
+    /**
+     * How long a series is collected without being subscribed to or read.
+     */
+    @ConfigProperty(name = "janus.collector.idle-ttl", defaultValue = "1h")
+    Duration idleTtl;
+
+    /**
+     * The consecutive scrapes that may not find a pod before its series are
+     * released, when the pod is looked up on the API server rather than in the
+     * pod index.
+     */
+    @ConfigProperty(name = "janus.collector.max-missing", defaultValue = "3")
+    int maxMissing;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * The token of each owner, by its hash, to scrape its series with.
+     */
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+    private final Set<ScrapeKey> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The consecutive scrapes that did not find the pod.
+     */
+    private final Map<ScrapeKey, Integer> missing = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private ExecutorService executor;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            LOG.info("The attribute collector is disabled");
+            return;
+        }
+
+        Gauge.builder("janus.collector.series", series, Map::size)
+                .description("The number of attributes collected in the background")
+                .register(registry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon()
+                .name("janus-collector").factory());
+        // The jolokia client blocks, so each pod is scraped on a virtual thread of its own
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        scheduler.scheduleAtFixedRate(this::scrapeAll, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        LOG.infof("Started the attribute collector [ interval: %s, capacity: %d, max-bytes: %d ]", interval, capacity,
+                maxBytes);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            executor.shutdownNow();
+        }
+        series.clear();
+        tokens.clear();
+        missing.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration interval() {
+        return interval;
+    }
+
+    /**
+     * Subscribes the caller to an attribute of a pod, or refreshes its
+     * subscription if it already collects it. The series is scraped with the
+     * given token.
+     *
+     * @return the series of the attribute
+     */
+    public Series subscribe(String namespace, String podName, String mbean, String attribute, String path,
+            String authToken) {
+        String normalizedPath = path == null || path.isBlank() ? null : path;
+        String owner = AuthenticationCache.hash(authToken);
+        String id = id(owner, namespace, podName, mbean, attribute, normalizedPath);
+        PodKey pod = new PodKey(namespace, podName);
+
+        Series subscribed = series.get(id);
+        if (subscribed == null) {
+            // Evicting within computeIfAbsent would update the map from within its own update
+            evictFor(AttributeHistory.bytes(capacity));
+            Series created = new Series(id, owner, pod, mbean, attribute, normalizedPath, capacity);
+            subscribed = series.putIfAbsent(id, created);
+            if (subscribed == null) {
+                LOG.debugf("Collecting attribute %s of %s from pod %s in namespace %s", attribute, mbean, podName,
+                        namespace);
+                subscribed = created;
+            }
+        }
+        subscribed.lastAccess = System.currentTimeMillis();
+        tokens.put(owner, authToken);
+        return subscribed;
+    }
+
+    /**
+     * Stops collecting the given series of the caller, discarding its history.
+     *
+     * @return true if the caller was collecting the series
+     */
+    public boolean unsubscribe(String id, String authToken) {
+        Series found = series.get(id);
+        return found != null && found.owner.equals(AuthenticationCache.hash(authToken)) && remove(found);
+    }
+
+    /**
+     * @return the series of the caller with the given id, marking it as read
+     */
+    public Optional<Series> series(String id, String authToken) {
+        Series found = series.get(id);
+        if (found == null || !found.owner.equals(AuthenticationCache.hash(authToken))) {
+            return Optional.empty();
+        }
+        found.lastAccess = System.currentTimeMillis();
+        return Optional.of(found);
+    }
+
+    /**
+     * @return all the series collected for the caller, in no particular order
+     */
+    public Collection<Series> allSeries(String authToken) {
+        String owner = AuthenticationCache.hash(authToken);
+        return series.values().stream().filter(subscribed -> subscribed.owner.equals(owner)).toList();
+    }
+
+    private boolean remove(Series removed) {
+        if (!series.remove(removed.id, removed)) {
+            return false;
+        }
+
+        if (series.values().stream().noneMatch(other -> other.owner.equals(removed.owner))) {
+            tokens.remove(removed.owner);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the given series, telling why.
+     */
+    private void release(Collection<Series> released, String reason) {
+        for (Series subscribed : released) {
+            if (remove(subscribed)) {
+                LOG.debugf("Releasing the collected attribute %s of %s from pod %s in namespace %s as %s",
+                        subscribed.attribute, subscribed.mbean, subscribed.pod.podName(), subscribed.pod.namespace(),
+                        reason);
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used series until the given bytes fit in the budget.
+     */
+    private void evictFor(long bytes) {
+        long perSeries = AttributeHistory.bytes(capacity);
+        while (!series.isEmpty() && (series.size() * perSeries) + bytes > maxBytes) {
+            series.values().stream().min(Comparator.comparingLong(candidate -> candidate.lastAccess))
+                    .ifPresent(evicted -> {
+                        LOG.infof("Evicting the collected attribute %s of %s from pod %s to stay within %d bytes",
+                                evicted.attribute, evicted.mbean, evicted.pod.podName(), maxBytes);
+                        remove(evicted);
+                    });
+        }
+    }
+
+    /**
+     * Scrapes every pod with subscribed attributes for each of their owners,
+     * unless the last scrape is still in flight, after releasing the series
+     * that have been idle for too long or whose namespace has moved to another
+     * replica.
+     */
+    void scrapeAll() {
+        try {
+            long now = System.currentTimeMillis();
+            Map<ScrapeKey, List<Series>> byPod = new HashMap<>();
+            for (Series subscribed : series.values()) {
+                if (now - subscribed.lastAccess > idleTtl.toMillis()) {
+                    release(List.of(subscribed), "it has not been read for " + idleTtl);
+                } else if (!shards.owns(subscribed.pod.namespace())) {
+                    release(List.of(subscribed), "the namespace has moved to another replica");
+                } else {
+                    byPod.computeIfAbsent(new ScrapeKey(subscribed.pod, subscribed.owner), key -> new ArrayList<>())
+                            .add(subscribed);
+                }
+            }
+            missing.keySet().retainAll(byPod.keySet());
+
+            byPod.forEach((key, podSeries) -> {
+                if (inFlight.add(key)) {
+                    executor.execute(() -> {
+                        try {
+                            scrape(key, podSeries);
+                        } finally {
+                            inFlight.remove(key);
+                        }
+                    });
+                } else {
+                    LOG.debugf("Skipping the scrape of pod %s as the last is still in flight", key.pod().podName());
+                }
+            });
+        } catch (Exception ex) {
+            // An exception would cancel the schedule
+            LOG.error("Failed to schedule the scrape of the collected attributes", ex);
+        }
+    }
+
+    /**
+     * Scrapes the given attributes of a pod in a single bulk request, with the
+     * token of their owner, once the token has been authorized to proxy to the
+     * pods of the namespace.
+     */
+    void scrape(ScrapeKey key, List<Series> podSeries) {
+        PodKey pod = key.pod();
+        long now = System.currentTimeMillis();
+        List<JolokiaResult> results;
+        try {
+            String token = tokens.get(key.owner());
+            if (token == null) {
+                return;
+            }
+
+            try {
+                authenticationCache.authenticate(token);
+                accessReviews.authorize(token, pod.namespace(), AccessReviewCache.Access.PROXY);
+            } catch (AuthenticationException ex) {
+                release(series.values().stream().filter(subscribed -> subscribed.owner.equals(key.owner())).toList(),
+                        "the token of its owner no longer authenticates");
+                return;
+            } catch (NoPermissionException ex) {
+                release(podSeries, "its owner may no longer proxy to the pods of the namespace");
+                return;
+            }
+
+            // The index, once synced, knows the pod is gone without asking the API server
+            boolean indexed = podIndex.isIndexed(pod.namespace());
+            Pod target = indexed ? podIndex.entry(pod.namespace(), pod.podName()).map(PodIndex.Entry::pod).orElse(null)
+                    : podIndex.pod(pod.namespace(), pod.podName());
+            if (target == null) {
+                if (indexed || missing.merge(key, 1, Integer::sum) >= maxMissing) {
+                    missing.remove(key);
+                    release(podSeries, "the pod no longer exists");
+                    return;
+                }
+                throw new IllegalStateException(
+                        "Pod not found: " + pod.podName() + " in namespace: " + pod.namespace());
+            }
+            missing.remove(key);
+
+            URL jolokiaUrl = podIndex.connectionURL(target);
+            if (jolokiaUrl == null) {
+                throw new IllegalStateException("The pod " + pod.podName() + " does not expose a jolokia port");
+            }
+
+            List<JolokiaRequest> requests = podSeries.stream()
+                    .map(subscribed -> JolokiaRequest.read(subscribed.mbean, subscribed.attribute))
+                    .toList();
+            results = jolokiaServiceFactory.createService(jolokiaUrl.toString(), token).bulk(requests);
+        } catch (Exception ex) {
+            LOG.debugf(ex, "Failed to scrape the collected attributes of pod %s", pod.podName());
+            registry.counter("janus.collector.scrapes", "result", "error").increment();
+            podSeries.forEach(subscribed -> subscribed.lastError = String.valueOf(ex.getMessage()));
+            return;
+        }
+
+        registry.counter("janus.collector.scrapes", "result", "success").increment();
+        for (int i = 0; i < podSeries.size() && i < results.size(); i++) {
+            Series subscribed = podSeries.get(i);
+            JolokiaResult result = results.get(i);
+            if (result.isError()) {
+                subscribed.lastError = result.error();
+            } else if (AttributeSamples.resolve(result.value(), subscribed.path) instanceof Number number) {
+                subscribed.history.add(now, number.doubleValue());
+                subscribed.lastError = null;
+            } else {
+                subscribed.lastError = "The value is not a number";
+            }
+        }
+    }
+
+    /**
+     * @return a short id of the series, the same each time the owner subscribes to the attribute
+     */
+    static String id(String owner, String namespace, String podName, String mbean, String attribute, String path) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String key = String.join("\u0000", owner, namespace, podName, mbean, attribute, String.valueOf(path));
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)), 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 is mandated for every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+}
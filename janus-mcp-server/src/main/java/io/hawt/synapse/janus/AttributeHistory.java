@@ -0,0 +1,144 @@
+package io.hawt.synapse.janus;
+
+import org.jolokia.json.JSONArray;
+
+/**
+ * A fixed-size ring buffer of the values of an attribute, each with the epoch
+ * millis at which it was scraped. Once full, each new value overwrites the
+ * oldest, so the memory of the history is fixed when it is created.
+ *
+ * Writes come from the collector's scrapes and reads from the resources that
+ * serve the history, so access is synchronized.
+ */
+public class AttributeHistory {
+
+    /**
+     * The bytes held for each value, a long for its time and a double for the value.
+     */
+    public static final int BYTES_PER_VALUE = Long.BYTES + Double.BYTES;
+
+    private final long[] times;
+
+    private final double[] values;
+
+    /**
+     * The index at which the next value is written.
+     */
+    private int next;
+
+    private int size;
+
+    public AttributeHistory(int capacity) {
+        times = new long[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * @return the bytes held by a history of the given capacity, whether or not it is full
+     */
+    public static long bytes(int capacity) {
+        return (long) capacity * BYTES_PER_VALUE;
+    }
+
+    public synchronized void add(long time, double value) {
+        times[next] = time;
+        values[next] = value;
+        next = (next + 1) % times.length;
+        size = Math.min(size + 1, times.length);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    /**
+     * @return the time of the oldest value held, or 0 if there are none
+     */
+    public synchronized long oldest() {
+        return size == 0 ? 0 : times[index(0)];
+    }
+
+    /**
+     * @return the time of the newest value held, or 0 if there are none
+     */
+    public synchronized long newest() {
+        return size == 0 ? 0 : times[index(size - 1)];
+    }
+
+    /**
+     * @return the index in the arrays of the i-th oldest value
+     */
+    private int index(int i) {
+        return (next - size + i + times.length) % times.length;
+    }
+
+    /**
+     * Returns the values scraped at or after the given time, downsampled into
+     * at most the given number of points. Each point is an array of the time
+     * of its first value, then the mean, min and max of its values. When there
+     * are more values than points, the window is split into buckets of equal
+     * duration and empty buckets are left out.
+     *
+     * @param from   the epoch millis from which values are returned
+     * @param points the most points to return
+     * @return the points, oldest first
+     */
+    public synchronized JSONArray window(long from, int points) {
+        int first = 0;
+        while (first < size && times[index(first)] < from) {
+            first++;
+        }
+
+        int count = size - first;
+        JSONArray result = new JSONArray(Math.min(count, points));
+        if (count == 0) {
+            return result;
+        }
+
+        long start = times[index(first)];
+        // The width of each bucket, such that the newest value falls in the last
+        double width = count <= points ? 0 : (times[index(size - 1)] - start + 1) / (double) points;
+
+        int bucket = -1;
+        long bucketTime = 0;
+        double sum = 0;
+        double min = 0;
+        double max = 0;
+        int inBucket = 0;
+        for (int i = first; i < size; i++) {
+            long time = times[index(i)];
+            double value = values[index(i)];
+            int valueBucket = width == 0 ? i : (int) ((time - start) / width);
+            if (valueBucket != bucket) {
+                if (inBucket > 0) {
+                    result.add(point(bucketTime, sum / inBucket, min, max));
+                }
+                bucket = valueBucket;
+                bucketTime = time;
+                sum = 0;
+                min = value;
+                max = value;
+                inBucket = 0;
+            }
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            inBucket++;
+        }
+        result.add(point(bucketTime, sum / inBucket, min, max));
+        return result;
+    }
+
+    private static JSONArray point(long time, double mean, double min, double max) {
+        JSONArray point = new JSONArray(4);
+        point.add(time);
+        point.add(mean);
+        point.add(min);
+        point.add(max);
+        return point;
+    }
+}
@@ -0,0 +1,240 @@
+package io.hawt.synapse.janus;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.jolokia.json.JSONObject;
+
+/**
+ * The samples of an attribute read repeatedly from one pod, summarised into
+ * a compact set of statistics rather than returned one by one.
+ *
+ * The numeric samples are held in primitive arrays sized for the number of
+ * samples taken, together with the time of each sample in milliseconds since
+ * the sampling started. Reads that fail, or whose values are not numbers,
+ * are only counted.
+ *
+ * A counter is expected to rise monotonically, so any decrease is taken as a
+ * reset of the counter, e.g. by a restart of the application, and its rate is
+ * the increase over the samples with the value after each reset counted from
+ * zero. Unless the caller says whether the attribute is a counter, it is taken
+ * as one when its values are whole numbers that only ever rise, apart from any
+ * drops to below a tenth of the preceding value.
+ */
+public class AttributeSamples {
+
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+
+    private final long[] times;
+
+    private final double[] values;
+
+    private int count;
+
+    private int failed;
+
+    private int nonNumeric;
+
+    private String lastError;
+
+    public AttributeSamples(int capacity) {
+        times = new long[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * Records the value read at the given time, resolving the path, if any,
+     * into a composite value. Only numeric values are kept.
+     *
+     * @param elapsedMillis the time of the sample since the sampling started
+     * @param value         the value read
+     * @param path          the keys, separated by slashes, leading to the number in a
+     *                      composite value, or null if the value is itself a number
+     */
+    public void add(long elapsedMillis, Object value, String path) {
+        Object resolved = resolve(value, path);
+        if (!(resolved instanceof Number number) || count == values.length) {
+            nonNumeric++;
+            return;
+        }
+
+        times[count] = elapsedMillis;
+        values[count] = number.doubleValue();
+        count++;
+    }
+
+    /**
+     * Records a read that failed.
+     */
+    public void fail(Throwable failure) {
+        failed++;
+        lastError = String.valueOf(failure.getMessage());
+    }
+
+    /**
+     * @return the number of numeric samples
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the number of reads that failed
+     */
+    public int failed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of reads whose value was not a number
+     */
+    public int nonNumeric() {
+        return nonNumeric;
+    }
+
+    /**
+     * @return the error of the last read that failed, or null if none did
+     */
+    public String lastError() {
+        return lastError;
+    }
+
+    /**
+     * @return the part of a composite value that the path leads to, or null if there is none
+     */
+    static Object resolve(Object value, String path) {
+        if (path == null || path.isBlank()) {
+            return value;
+        }
+
+        for (String key : path.split("/")) {
+            if (key.isEmpty()) {
+                continue;
+            }
+            if (!(value instanceof Map<?, ?> map)) {
+                return null;
+            }
+            value = map.get(key);
+        }
+        return value;
+    }
+
+    /**
+     * Whether the samples look like a counter: whole numbers that only ever rise
+     * apart from drops to below a tenth of the preceding value.
+     */
+    boolean looksLikeCounter() {
+        for (int i = 0; i < count; i++) {
+            if (values[i] < 0 || values[i] != Math.rint(values[i])) {
+                return false;
+            }
+            if (i > 0 && values[i] < values[i - 1] && values[i] >= values[i - 1] / 10) {
+                return false;
+            }
+        }
+        return count > 1;
+    }
+
+    /**
+     * Summarises the samples.
+     *
+     * @param counter whether the attribute is a counter, or null to decide from the samples
+     * @return the statistics of the samples, with only the counts if there are no numeric samples
+     */
+    public JSONObject summary(Boolean counter) {
+        JSONObject json = new JSONObject();
+        json.put("samples", count);
+        json.put("failed", failed);
+        json.put("nonNumeric", nonNumeric);
+        if (lastError != null) {
+            json.put("lastError", lastError);
+        }
+        if (count == 0) {
+            return json;
+        }
+
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        double mean = sum / count;
+        double squares = 0;
+        for (int i = 0; i < count; i++) {
+            squares += (values[i] - mean) * (values[i] - mean);
+        }
+
+        double[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+
+        double first = values[0];
+        double last = values[count - 1];
+        double seconds = (times[count - 1] - times[0]) / 1000.0;
+
+        json.put("durationMillis", times[count - 1] - times[0]);
+        json.put("first", first);
+        json.put("last", last);
+        json.put("min", sorted[0]);
+        json.put("max", sorted[count - 1]);
+        json.put("mean", mean);
+        json.put("stddev", Math.sqrt(squares / count));
+        JSONObject percentiles = new JSONObject();
+        for (double percentile : PERCENTILES) {
+            percentiles.put("p" + Math.round(percentile * 100), percentile(sorted, percentile));
+        }
+        json.put("percentiles", percentiles);
+
+        boolean isCounter = counter != null ? counter : looksLikeCounter();
+        json.put("counter", isCounter);
+        if (isCounter) {
+            int resets = 0;
+            double increase = 0;
+            for (int i = 1; i < count; i++) {
+                if (values[i] < values[i - 1]) {
+                    // The counter restarted from zero since the last sample
+                    resets++;
+                    increase += values[i];
+                } else {
+                    increase += values[i] - values[i - 1];
+                }
+            }
+            json.put("resets", resets);
+            json.put("increase", increase);
+            json.put("ratePerSecond", seconds > 0 ? increase / seconds : null);
+        } else {
+            json.put("change", last - first);
+            json.put("ratePerSecond", seconds > 0 ? (last - first) / seconds : null);
+            json.put("slopePerSecond", seconds > 0 ? slope() * 1000 : null);
+        }
+        return json;
+    }
+
+    /**
+     * @return the slope of the least squares line through the samples, per millisecond
+     */
+    private double slope() {
+        double meanTime = 0;
+        double meanValue = 0;
+        for (int i = 0; i < count; i++) {
+            meanTime += times[i];
+            meanValue += values[i];
+        }
+        meanTime /= count;
+        meanValue /= count;
+
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < count; i++) {
+            covariance += (times[i] - meanTime) * (values[i] - meanValue);
+            variance += (times[i] - meanTime) * (times[i] - meanTime);
+        }
+        return variance > 0 ? covariance / variance : 0;
+    }
+
+    /**
+     * @return the nearest-rank percentile of the sorted values
+     */
+    private static double percentile(double[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, Math.min(rank, sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,209 @@
+package io.hawt.synapse.janus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import javax.naming.AuthenticationException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.fabric8.kubernetes.api.model.authentication.TokenReview;
+import io.fabric8.kubernetes.api.model.authentication.TokenReviewBuilder;
+import io.fabric8.kubernetes.api.model.authentication.TokenReviewStatus;
+import io.fabric8.kubernetes.api.model.authentication.UserInfo;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Caches the outcome of {@link TokenReview}s so that repeated tool calls made
+ * with the same bearer token do not each cost a round trip to the Kubernetes
+ * API server.
+ *
+ * Entries are keyed by a SHA-256 hash of the token, never the raw token.
+ * Successful reviews live until the token expires (as declared by its JWT
+ * {@code exp} claim), capped at a maximum TTL. Failed reviews are only
+ * cached briefly. Concurrent lookups of the same token share a single
+ * in-flight review.
+ */
+@ApplicationScoped
+public class AuthenticationCache {
+
+    private static final Logger LOG = Logger.getLogger(AuthenticationCache.class);
+
+    /**
+     * The outcome of a token review.
+     *
+     * @param authenticated whether the API server accepted the token
+     * @param user          the user the token belongs to, if authenticated
+     * @param error         the error reported by the API server, if any
+     * @param expiresAt     epoch millis at which this outcome should no longer be trusted
+     */
+    record Review(boolean authenticated, UserInfo user, String error, long expiresAt) {
+    }
+
+    @Inject
+    KubernetesClient k8sClient;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "janus.auth.cache.maximum-size", defaultValue = "1000")
+    long maximumSize;
+
+    @ConfigProperty(name = "janus.auth.cache.max-ttl", defaultValue = "5m")
+    Duration maxTtl;
+
+    @ConfigProperty(name = "janus.auth.cache.failure-ttl", defaultValue = "10s")
+    Duration failureTtl;
+
+    private Cache<String, Review> reviews;
+
+    @PostConstruct
+    void init() {
+        reviews = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.creating((String key, Review review) -> Duration
+                        .ofMillis(Math.max(0, review.expiresAt() - System.currentTimeMillis()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, reviews, "token-reviews");
+    }
+
+    @PreDestroy
+    void close() {
+        JanusMetrics.removeCacheMeters(registry, "token-reviews");
+    }
+
+    /**
+     * Authenticates the given bearer token, consulting the cache first.
+     *
+     * @param token the raw bearer token
+     * @return the user the token belongs to
+     * @throws AuthenticationException if the token is not authenticated
+     */
+    public UserInfo authenticate(String token) throws AuthenticationException {
+        // Concurrent callers with the same token block on the one review in flight
+        Review review = reviews.get(hash(token), key -> review(token));
+
+        if (!review.authenticated()) {
+            LOG.warnf("Token validation failed: %s", review.error());
+            throw new AuthenticationException("Token validation failed. Could not authenticate.");
+        }
+        return review.user();
+    }
+
+    /**
+     * @return the number of authentications answered from the cache
+     */
+    public long hitCount() {
+        return reviews.stats().hitCount();
+    }
+
+    /**
+     * @return the number of authentications that required a token review
+     */
+    public long missCount() {
+        return reviews.stats().missCount();
+    }
+
+    /**
+     * @return the underlying cache statistics
+     */
+    public CacheStats stats() {
+        return reviews.stats();
+    }
+
+    /**
+     * Discards all cached reviews.
+     */
+    public void invalidateAll() {
+        reviews.invalidateAll();
+    }
+
+    private Review review(String token) {
+        // Create a TokenReview object with the user's token, which is never put in its metadata
+        TokenReview review = new TokenReviewBuilder()
+                .withNewMetadata()
+                    .withGenerateName("janus-")
+                .endMetadata()
+                .withNewSpec()
+                    .withToken(token)
+                .endSpec()
+                .build();
+
+        // Submit the review to the Kubernetes API server
+        TokenReview result = k8sClient.authentication().v1().tokenReviews().create(review);
+
+        // Check the status of the review
+        long now = System.currentTimeMillis();
+        TokenReviewStatus status = result.getStatus();
+        if (status == null || !Boolean.TRUE.equals(status.getAuthenticated())) {
+            String error = (status != null) ? status.getError() : "Unknown";
+            return new Review(false, null, error, now + failureTtl.toMillis());
+        }
+
+        long expiresAt = now + maxTtl.toMillis();
+        Long tokenExpiry = tokenExpiry(token);
+        if (tokenExpiry != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiry);
+        }
+        return new Review(true, status.getUser(), null, expiresAt);
+    }
+
+    /**
+     * Reads the {@code exp} claim of a JWT bearer token. The signature is not
+     * checked here as that is the job of the token review.
+     *
+     * @return the expiry in epoch millis, or null if the token is not a JWT
+     *         or carries no expiry
+     */
+    Long tokenExpiry(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+
+        try {
+            JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            JsonNode exp = claims.get("exp");
+            return (exp != null && exp.canConvertToLong()) ? exp.asLong() * 1000 : null;
+        } catch (Exception ex) {
+            LOG.debug("Bearer token is not a readable JWT so falling back to the maximum cache TTL", ex);
+            return null;
+        }
+    }
+
+    /**
+     * @return the SHA-256 digest of the token, by which to key what is kept for it
+     *         without holding on to the token itself
+     */
+    public static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 is mandated for every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package io.hawt.synapse.janus;
+
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.quarkiverse.mcp.server.ToolResponse;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.impl.NoStackTraceTimeoutException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The metrics of the MCP tools, exposed in the Prometheus format at /q/metrics.
+ *
+ * <ul>
+ * <li>janus.tool.duration: the latency of each tool, by tool and outcome</li>
+ * <li>janus.tool.phase.duration: the latency of each phase of a tool, i.e.
+ * authenticate, authorize, pod-lookup, url and jolokia</li>
+ * <li>janus.tool.in.flight: the number of calls of each tool in progress</li>
+ * <li>janus.target.failures: the failed and timed out requests to the jolokia
+ * agents of the pods of each namespace</li>
+ * </ul>
+ *
+ * The caches register their own metrics with their names as the cache tag.
+ *
+ * Each tool call and each of its phases is also traced as a span, see {@link JanusTracing}.
+ */
+@ApplicationScoped
+public class JanusMetrics {
+
+    private static final Logger LOG = Logger.getLogger(JanusMetrics.class);
+
+    public static final String AUTHENTICATE = "authenticate";
+    public static final String AUTHORIZE = "authorize";
+    public static final String POD_LOOKUP = "pod-lookup";
+    public static final String URL = "url";
+    public static final String JOLOKIA = "jolokia";
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    JanusTracing tracing;
+
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Times a tool that answers asynchronously, from now until its response.
+     */
+    public Uni<ToolResponse> tool(String tool, Supplier<Uni<ToolResponse>> call) {
+        AtomicInteger calls = inFlight(tool);
+        calls.incrementAndGet();
+        Timer.Sample sample = Timer.start(registry);
+        Span span = tracing.startTool(tool);
+        return JanusTracing.within(Context.current().with(span), call).onTermination()
+                .invoke((response, failure, cancelled) -> {
+                    calls.decrementAndGet();
+                    sample.stop(toolTimer(tool, outcome(response, failure)));
+                    end(span, response, failure);
+                });
+    }
+
+    /**
+     * Times a tool that answers synchronously.
+     */
+    public ToolResponse toolBlocking(String tool, Supplier<ToolResponse> call) {
+        AtomicInteger calls = inFlight(tool);
+        calls.incrementAndGet();
+        Timer.Sample sample = Timer.start(registry);
+        Span span = tracing.startTool(tool);
+        ToolResponse response = null;
+        Throwable failure = null;
+        try (Scope scope = span.makeCurrent()) {
+            response = call.get();
+            return response;
+        } catch (RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            calls.decrementAndGet();
+            sample.stop(toolTimer(tool, outcome(response, failure)));
+            end(span, response, failure);
+        }
+    }
+
+    /**
+     * Times one phase of a tool, run synchronously.
+     */
+    public <T> T phase(String tool, String phase, Callable<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        Span span = tracing.startPhase(tool, phase);
+        Throwable failure = null;
+        try (Scope scope = span.makeCurrent()) {
+            return call.call();
+        } catch (Exception ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            sample.stop(phaseTimer(tool, phase));
+            JanusTracing.end(span, failure);
+        }
+    }
+
+    /**
+     * Times one phase of a tool, from the subscription to the uni of the given
+     * supplier until it terminates. The uni is only created once the phase has
+     * started so that the spans of its work are children of the phase.
+     */
+    public <T> Uni<T> phaseAsync(String tool, String phase, Supplier<Uni<T>> uni) {
+        return Uni.createFrom().deferred(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            Span span = tracing.startPhase(tool, phase);
+            return JanusTracing.within(Context.current().with(span), uni).onTermination()
+                    .invoke((item, failure, cancelled) -> {
+                        sample.stop(phaseTimer(tool, phase));
+                        JanusTracing.end(span, failure);
+                    });
+        });
+    }
+
+    /**
+     * Counts a failed request to the jolokia agent of a pod, telling timeouts from other failures.
+     */
+    public void targetFailure(String namespace, String podName, Throwable failure) {
+        targetFailure(namespace, podName, isTimeout(failure));
+    }
+
+    public void targetFailure(String namespace, String podName, boolean timeout) {
+        // Pods come and go with each rollout, so they are logged rather than tagged
+        LOG.debugf("A request to the jolokia agent of pod '%s' in namespace '%s' %s", podName, namespace,
+                timeout ? "timed out" : "failed");
+        registry.counter("janus.target.failures", "namespace", String.valueOf(namespace), "kind",
+                timeout ? "timeout" : "error").increment();
+    }
+
+    /**
+     * Removes the meters of a cache, registered with its name as the cache tag,
+     * when the cache is released. The registry outlives the beans holding the
+     * caches, as across restarts of the application, so the meters would
+     * otherwise keep reading the released cache rather than its successor.
+     */
+    public static void removeCacheMeters(MeterRegistry registry, String cache) {
+        Search.in(registry).tag("cache", cache).meters().forEach(registry::remove);
+    }
+
+    private AtomicInteger inFlight(String tool) {
+        return inFlight.computeIfAbsent(tool, name -> {
+            AtomicInteger calls = new AtomicInteger();
+            Gauge.builder("janus.tool.in.flight", calls, AtomicInteger::get)
+                    .description("The number of calls of the tool in progress")
+                    .tag("tool", name)
+                    .register(registry);
+            return calls;
+        });
+    }
+
+    private Timer toolTimer(String tool, String outcome) {
+        return Timer.builder("janus.tool.duration")
+                .description("The latency of the tool")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer phaseTimer(String tool, String phase) {
+        return Timer.builder("janus.tool.phase.duration")
+                .description("The latency of a phase of the tool")
+                .tag("tool", tool)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static void end(Span span, ToolResponse response, Throwable failure) {
+        if (failure == null && response != null && response.isError()) {
+            span.setStatus(StatusCode.ERROR);
+        }
+        JanusTracing.end(span, failure);
+    }
+
+    private static String outcome(ToolResponse response, Throwable failure) {
+        return failure != null || response == null || response.isError() ? "error" : "success";
+    }
+
+    static boolean isTimeout(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException
+                    || cause instanceof io.smallrye.mutiny.TimeoutException
+                    // Thrown by the vertx client when a request or a connection times out
+                    || cause instanceof NoStackTraceTimeoutException
+                    || cause instanceof io.netty.handler.timeout.TimeoutException
+                    || cause instanceof io.netty.channel.ConnectTimeoutException
+                    // Thrown by the apache client when a connection, or one from the pool, times out
+                    || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -1,24 +1,38 @@
 package io.hawt.synapse.janus;
 
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 import javax.naming.AuthenticationException;
+import javax.naming.NoPermissionException;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.jolokia.json.JSONArray;
 import org.jolokia.json.JSONObject;
 
 import io.fabric8.kubernetes.api.model.Pod; // The Fabric8 Pod model
-import io.fabric8.kubernetes.api.model.authentication.TokenReview;
-import io.fabric8.kubernetes.api.model.authentication.TokenReviewBuilder;
-import io.fabric8.kubernetes.api.model.authentication.TokenReviewStatus;
-import io.fabric8.kubernetes.client.KubernetesClient;
+import io.opentelemetry.context.Context;
 import io.quarkiverse.mcp.server.EmbeddedResource;
 import io.quarkiverse.mcp.server.McpLog;
+import io.quarkiverse.mcp.server.RequestUri;
+import io.quarkiverse.mcp.server.Resource;
+import io.quarkiverse.mcp.server.ResourceTemplate;
 import io.quarkiverse.mcp.server.TextResourceContents;
 import io.quarkiverse.mcp.server.Tool;
 import io.quarkiverse.mcp.server.ToolArg;
+import io.quarkiverse.mcp.server.ToolCallException;
 import io.quarkiverse.mcp.server.ToolResponse;
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.vertx.core.http.HttpServerRequest;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -28,19 +42,80 @@ public class JanusServer {
 
     private static final Logger LOG = Logger.getLogger(JanusServer.class);
 
+    private static final String PROJECTION_DESCRIPTION = "A JSONPath expression selecting the part of the JSON result to return, "
+            + "e.g. $.value.used, to return only what is needed of a large result";
+
     @Inject
     HttpServerRequest request; // For getting the Authorization header
 
-    // Inject the KubernetesClient. Quarkus will configure this automatically
-    // to talk to the OpenShift cluster it's running in.
     @Inject
-    private KubernetesClient k8sClient;
+    JolokiaServiceFactory jolokiaServiceFactory;
 
     @Inject
-    private JolokiaConnection jolokiaConnection;
+    AuthenticationCache authenticationCache;
 
     @Inject
-    JolokiaServiceFactory jolokiaServiceFactory;
+    AccessReviewCache accessReviews;
+
+    @Inject
+    PodIndex podIndex;
+
+    @Inject
+    JolokiaFanOut jolokiaFanOut;
+
+    @Inject
+    MBeanMetadataCache mbeanMetadataCache;
+
+    @Inject
+    JanusMetrics metrics;
+
+    @Inject
+    AttributeCollector attributeCollector;
+
+    @Inject
+    ShardCoordinator shards;
+
+    /**
+     * The largest JSON response, in bytes, that a tool returns to the client.
+     */
+    @ConfigProperty(name = "janus.response.max-bytes", defaultValue = "262144")
+    int maxResponseBytes;
+
+    /**
+     * The most samples that the sampling tool takes of an attribute.
+     */
+    @ConfigProperty(name = "janus.sample.max-samples", defaultValue = "600")
+    int maxSamples;
+
+    /**
+     * The shortest interval between the samples of an attribute.
+     */
+    @ConfigProperty(name = "janus.sample.min-interval", defaultValue = "100ms")
+    Duration minSampleInterval;
+
+    /**
+     * The longest time that the sampling of an attribute may take.
+     */
+    @ConfigProperty(name = "janus.sample.max-duration", defaultValue = "5m")
+    Duration maxSampleDuration;
+
+    /**
+     * The number of points that the history of an attribute is downsampled to, unless asked for another.
+     */
+    @ConfigProperty(name = "janus.collector.points", defaultValue = "60")
+    int historyPoints;
+
+    /**
+     * The number of MBean names, or pods, in a page of a listing, unless asked for another.
+     */
+    @ConfigProperty(name = "janus.list.page-size", defaultValue = "100")
+    int listPageSize;
+
+    /**
+     * The most MBean names, or pods, in a page of a listing.
+     */
+    @ConfigProperty(name = "janus.list.max-page-size", defaultValue = "500")
+    int maxListPageSize;
 
     /**
      * Extracts the bearer token from the Authorization header.
@@ -54,33 +129,13 @@ public class JanusServer {
         return null;
     }
 
-    private String validateToken(String namespace, String podName) throws Exception {
-        String token = getBearerToken();
+    private String validateToken(String token) throws Exception {
         if (token == null || token.length() == 0) {
             throw new AuthenticationException("Authentication failed: No bearer token provided.");
         }
 
-        // Create a TokenReview object with the user's token
-        TokenReview review = new TokenReviewBuilder()
-                .withNewMetadata()
-                    .withGenerateName(token)
-                .endMetadata()
-                .withNewSpec()
-                    .withToken(token)
-                .endSpec()
-                .build();
-
-        // Submit the review to the Kubernetes API server
-        TokenReview result = k8sClient.authentication().v1().tokenReviews().create(review);
-
-        // Check the status of the review
-        TokenReviewStatus status = result.getStatus();
-        if (status == null || ! status.getAuthenticated()) {
-            // Token is invalid or unauthenticated
-            String error = (status != null) ? status.getError() : "Unknown";
-            LOG.warnf("Token validation failed: %s", error);
-            throw new AuthenticationException("Token validation failed. Could not authenticate.");
-        }
+        // Consult the cached token reviews before asking the API server
+        authenticationCache.authenticate(token);
 
         return token;
     }
@@ -97,32 +152,92 @@ public class JanusServer {
     }
 
     /**
-     * Reads the version of the jolokia server from a uniquely identified pod.
+     * Authenticates the caller.
+     *
+     * @return the caller's bearer token
+     * @throws ToolCallException carrying the message to return to the client if authentication fails
      */
-    @Tool(description = "Reads the version of the jolokia server attached to a specific pod in a specific namespace.")
-    public ToolResponse version(@ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
-            @ToolArg(description = "The name of the target pod") String podName, McpLog log) {
-
-        // --- Security Check ---
-        String authToken = null;
+    private String authenticate(String tool, String token, String podName) {
         try {
-            authToken = this.validateToken(namespace, podName);
+            return metrics.phase(tool, JanusMetrics.AUTHENTICATE, () -> this.validateToken(token));
         } catch (Exception ex) {
             LOG.error("Pod " + podName + " produced an error while validation authentication", ex);
-            return ToolResponse.error("Failed to validate authentication: " + ex.getMessage());
+            throw new ToolCallException("Failed to validate authentication: " + ex.getMessage(), ex);
         }
+    }
 
-        LOG.info("Received valid authorization token: " + authToken);
+    /**
+     * Authorizes the caller for the access to the pods of the namespace, or of
+     * all namespaces if it is null.
+     *
+     * @throws ToolCallException carrying the message to return to the client if authorization fails
+     */
+    private void authorize(String tool, String token, String namespace, AccessReviewCache.Access access) {
+        try {
+            metrics.phase(tool, JanusMetrics.AUTHORIZE, () -> {
+                accessReviews.authorize(token, namespace, access);
+                return null;
+            });
+        } catch (NoPermissionException ex) {
+            // Already logged by the cache as a denied review
+            throw new ToolCallException(ex.getMessage(), ex);
+        } catch (Exception ex) {
+            LOG.error("Namespace " + namespace + " produced an error while validating authorization", ex);
+            throw new ToolCallException("Failed to validate authorization: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Turns away a request for a namespace of another replica's shard, telling
+     * the client where to send it, as this replica neither watches its pods nor
+     * keeps their clients.
+     *
+     * @throws ToolCallException carrying the url of the replica the namespace belongs to
+     */
+    private void checkShard(String namespace) {
+        Optional<String> ownerUrl = namespace != null ? shards.ownerUrl(namespace) : Optional.empty();
+        if (ownerUrl.isPresent()) {
+            throw new ToolCallException(String.format(
+                    "The namespace '%s' is served by the Janus replica at %s. Send the requests for its pods to that replica.",
+                    namespace, ownerUrl.get()));
+        }
+    }
+
+    /**
+     * A target pod together with its jolokia service.
+     */
+    private record Target(Pod pod, JolokiaService service) {
+    }
+
+    /**
+     * Authenticates the caller then resolves the jolokia service of the target pod.
+     *
+     * @return the jolokia service of the pod, or empty if the pod does not expose a jolokia port
+     * @throws ToolCallException carrying the message to return to the client if any stage fails
+     */
+    private Optional<JolokiaService> jolokiaService(String tool, String namespace, String podName, String token) {
+        return target(tool, namespace, podName, token).map(Target::service);
+    }
+
+    /**
+     * As {@link #jolokiaService(String, String, String, String)} but also returning the pod itself.
+     */
+    private Optional<Target> target(String tool, String namespace, String podName, String token) {
+        JanusTracing.target(namespace, podName);
+
+        // --- Security Check ---
+        String authToken = authenticate(tool, token, podName);
+        checkShard(namespace);
+        authorize(tool, authToken, namespace, AccessReviewCache.Access.PROXY);
 
         // --- Dynamic Service Discovery Logic ---
         Pod targetPod = null;
         String podIp = null;
         try {
-            // Use the Kubernetes client to fetch the pod object.
-            LOG.debugf("Fetching the pod with name '%s' from namespace '%s' in cluster", podName, namespace);
-            targetPod = k8sClient.pods().inNamespace(namespace).withName(podName).get();
+            // Look up the pod object in the local index, falling back to the cluster.
+            targetPod = metrics.phase(tool, JanusMetrics.POD_LOOKUP, () -> podIndex.pod(namespace, podName));
             if (targetPod == null) {
-                return ToolResponse.error("Pod not found: " + podName + " in namespace: " + namespace);
+                throw new ToolCallException("Pod not found: " + podName + " in namespace: " + namespace);
             }
 
             // Get the pod's internal IP address.
@@ -130,144 +245,784 @@ public class JanusServer {
                     namespace);
             podIp = targetPod.getStatus().getPodIP();
             if (podIp == null || podIp.isEmpty()) {
-                return ToolResponse
-                        .error("Pod " + podName + " does not have an IP address yet. It may still be starting.");
+                throw new ToolCallException(
+                        "Pod " + podName + " does not have an IP address yet. It may still be starting.");
             }
+        } catch (ToolCallException ex) {
+            throw ex;
         } catch (Exception ex) {
             // Catch any potential exceptions from the Kubernetes API client.
             LOG.error("Pod " + podName + " produced an error while querying the kubernetes cluster", ex);
-            return ToolResponse.error("Failed to query Kubernetes API: " + ex.getMessage());
+            throw new ToolCallException("Failed to query Kubernetes API: " + ex.getMessage(), ex);
         }
 
-        LOG.debugf(String.format("The pod with name '%s' from namespace '%s' has the ip address '%s'", podName,
-                namespace, podIp));
+        LOG.debugf("The pod with name '%s' from namespace '%s' has the ip address '%s'", podName, namespace, podIp);
 
         // Construct the Jolokia URL on the fly.
         URL jolokiaUrl = null;
         try {
-            jolokiaUrl = jolokiaConnection.connectionURL(targetPod);
+            Pod pod = targetPod;
+            jolokiaUrl = metrics.phase(tool, JanusMetrics.URL, () -> podIndex.connectionURL(pod));
             if (jolokiaUrl == null) {
-                return ToolResponse.success(String.format(
-                        "The pod '%s' was found but does not expose a Jolokia port, so it is not a pod of interest.",
-                        podName));
+                return Optional.empty();
             }
 
             LOG.debugf("Pod '%s' has jolokia url of %s'", podName, jolokiaUrl);
         } catch (Exception ex) {
             LOG.error("Pod " + podName + " produced an error while deriving the url to the jolokia service", ex);
-            return ToolResponse
-                    .error(String.format("Pod '%s' produced an error while deriving the url to the jolokia service: %s",
-                            podName, ex.getMessage()));
+            throw new ToolCallException(
+                    String.format("Pod '%s' produced an error while deriving the url to the jolokia service: %s",
+                            podName, ex.getMessage()), ex);
         }
 
         try {
-            Optional<JSONObject> versionOptional = getJolokiaService(jolokiaUrl, authToken).version();
-            if (versionOptional.isPresent()) {
-                JSONObject version = versionOptional.get();
-                LOG.info(String.format("Successfully retrieved Jolokia version from pod %s", podName));
-
-                /*
-                 * Return the JSON data as an embedded resource. The LLM can parse this much
-                 * better than a plain text string.
-                 */
-
-                // Create a descriptive URI for the dynamically generated data.
-                String resourceUri = "jolokia://" + podName + "/version";
-
-                // 2. Create the TextResourceContents with the new URI parameter.
-                TextResourceContents textResource = new TextResourceContents(resourceUri, version.toString(),
-                        "application/json");
-                EmbeddedResource embeddedResource = new EmbeddedResource(textResource);
-                return ToolResponse.success(embeddedResource);
-            } else {
-                // The tool worked, but Jolokia returned nothing.
-                LOG.warnf("Pod %s returned an empty optional for Jolokia version.", podName);
-                return ToolResponse.success(String.format(
-                        "Successfully connected to pod '%s', but no version information was returned by the Jolokia endpoint.",
-                        podName));
-            }
-
+            return Optional.of(new Target(targetPod, getJolokiaService(jolokiaUrl, authToken)));
         } catch (Exception ex) {
             LOG.error("Pod " + podName + " produced an error while querying the application's jolokia service", ex);
-            return ToolResponse.error(
-                    String.format("Pod '%s' produced an error while quering the application's jolokia service: %s",
-                            podName, ex.getMessage()));
+            throw jolokiaError(podName, ex);
         }
     }
 
+    /**
+     * Resolves the jolokia service of the target pod as {@link #jolokiaService(String, String, String, String)}
+     * but on a worker thread, as authentication and the pod lookup may call the API server.
+     */
+    private Uni<Optional<JolokiaService>> jolokiaServiceAsync(String tool, String namespace, String podName) {
+        // The token must be read from the request before leaving the caller's thread
+        String token = getBearerToken();
+        return JanusTracing.offload(() -> jolokiaService(tool, namespace, podName, token),
+                Infrastructure.getDefaultWorkerPool());
+    }
+
+    private static ToolCallException jolokiaError(String podName, Throwable ex) {
+        ex = unwrap(ex);
+        return new ToolCallException(
+                String.format("Pod '%s' produced an error while quering the application's jolokia service: %s",
+                        podName, ex.getMessage()), ex);
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private ToolResponse jolokiaFailure(String namespace, String podName, Throwable ex) {
+        LOG.error("Pod " + podName + " produced an error while querying the application's jolokia service", ex);
+        metrics.targetFailure(namespace, podName, unwrap(ex));
+        return ToolResponse.error(jolokiaError(podName, ex).getMessage());
+    }
+
+    private static ToolResponse notJolokiaPod(String podName) {
+        return ToolResponse.success(String.format(
+                "The pod '%s' was found but does not expose a Jolokia port, so it is not a pod of interest.",
+                podName));
+    }
+
+    /**
+     * Projects the given JSON through the projection, if any, then returns the
+     * selected part as {@link #jsonResource(String, String, String)} does. Only
+     * the selected part is serialized.
+     */
+    private ToolResponse jsonResource(String resourceUri, Object json, String projection, String source) {
+        Object selected;
+        try {
+            selected = JsonProjection.project(json, projection);
+        } catch (IllegalArgumentException ex) {
+            return ToolResponse.error(ex.getMessage());
+        }
+        return jsonResource(resourceUri, JsonProjection.toJSONString(selected), source);
+    }
+
+    /**
+     * Returns the given JSON as an embedded resource, unless it is larger than
+     * the response budget in which case the client is told how to trim it.
+     */
+    private ToolResponse jsonResource(String resourceUri, String json, String source) {
+        int size = json.getBytes(StandardCharsets.UTF_8).length;
+        if (size > maxResponseBytes) {
+            LOG.warnf("The response of %d bytes from %s exceeds the budget of %d bytes", size, source, maxResponseBytes);
+            return ToolResponse.error(String.format(
+                    "The response from '%s' is %d bytes which exceeds the response budget of %d bytes. "
+                            + "Read fewer attributes or trim the values with maxDepth, maxCollectionSize or maxObjects.",
+                    source, size, maxResponseBytes));
+        }
+
+        TextResourceContents textResource = new TextResourceContents(resourceUri, json, "application/json");
+        return ToolResponse.success(new EmbeddedResource(textResource));
+    }
+
+    /**
+     * Reads the version of the jolokia server from a uniquely identified pod.
+     */
+    @Tool(description = "Reads the version of the jolokia server attached to a specific pod in a specific namespace.")
+    public Uni<ToolResponse> version(@ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
+            @ToolArg(description = "The name of the target pod") String podName,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection, McpLog log) {
+        return metrics.tool("version", () -> {
+            return jolokiaServiceAsync("version", namespace, podName).flatMap(jolokiaService -> {
+                if (jolokiaService.isEmpty()) {
+                    return Uni.createFrom().item(notJolokiaPod(podName));
+                }
+
+                return metrics.phaseAsync("version", JanusMetrics.JOLOKIA, () -> jolokiaService.get().versionAsync()).map(versionOptional -> {
+                    if (versionOptional.isPresent()) {
+                        JSONObject version = versionOptional.get();
+                        LOG.info(String.format("Successfully retrieved Jolokia version from pod %s", podName));
+
+                        /*
+                         * Return the JSON data as an embedded resource. The LLM can parse this much
+                         * better than a plain text string.
+                         */
+
+                        // Create a descriptive URI for the dynamically generated data.
+                        String resourceUri = "jolokia://" + podName + "/version";
+
+                        // 2. Create the resource with the new URI, holding only the projected part.
+                        return jsonResource(resourceUri, version, projection, podName);
+                    } else {
+                        // The tool worked, but Jolokia returned nothing.
+                        LOG.warnf("Pod %s returned an empty optional for Jolokia version.", podName);
+                        return ToolResponse.success(String.format(
+                                "Successfully connected to pod '%s', but no version information was returned by the Jolokia endpoint.",
+                                podName));
+                    }
+                }).onFailure().recoverWithItem(ex -> jolokiaFailure(namespace, podName, ex));
+            });
+        });
+    }
+
+    /**
+     * Reads a number of JMX MBean attributes from a uniquely identified pod in a
+     * single bulk request.
+     */
+    @Tool(description = "Read many attributes, from one or more MBeans, on a specific pod in a specific namespace in a single request.")
+    public Uni<ToolResponse> readAttributes(
+            @ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
+            @ToolArg(description = "The name of the target pod") String podName,
+            @ToolArg(description = "The attributes to read, each given by its JMX MBean ObjectName and attribute name") List<MBeanAttribute> attributes,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection,
+            McpLog log) {
+        return metrics.tool("readAttributes", () -> {
+            if (attributes == null || attributes.isEmpty()) {
+                return Uni.createFrom().item(ToolResponse.error("No attributes were given to read"));
+            }
+
+            List<JolokiaRequest> requests = attributes.stream()
+                    .map(attribute -> JolokiaRequest.read(attribute.mbean(), attribute.attribute()))
+                    .toList();
+
+            return jolokiaServiceAsync("readAttributes", namespace, podName).flatMap(jolokiaService -> {
+                if (jolokiaService.isEmpty()) {
+                    return Uni.createFrom().item(notJolokiaPod(podName));
+                }
+
+                return metrics.phaseAsync("readAttributes", JanusMetrics.JOLOKIA, () -> jolokiaService.get().bulkAsync(requests)).map(results -> {
+                    LOG.debugf("Read %d attributes from pod %s in a single request", results.size(), podName);
+
+                    JSONArray values = new JSONArray(results.size());
+                    for (JolokiaResult result : results) {
+                        values.add(result.toJSON());
+                    }
+                    return jsonResource("jolokia://" + podName + "/read", values, projection, podName);
+                }).onFailure().recoverWithItem(ex -> jolokiaFailure(namespace, podName, ex));
+            });
+        });
+    }
+
     /**
      * Reads a specific JMX MBean attribute from a uniquely identified pod.
      */
-    @Tool(description = "Read an attribute from a given MBean on a specific pod in a specific namespace.")
-    public ToolResponse readAttribute(
+    @Tool(description = "Read an attribute from a given MBean on a specific pod in a specific namespace. "
+            + "Large values can be trimmed by the agent with maxDepth, maxCollectionSize and maxObjects.")
+    public Uni<ToolResponse> readAttribute(
             @ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
             @ToolArg(description = "The name of the target pod") String podName,
             @ToolArg(description = "The JMX MBean ObjectName") String mbean,
-            @ToolArg(description = "The name of the attribute to read") String attribute, McpLog log) {
+            @ToolArg(description = "The name of the attribute to read") String attribute,
+            @ToolArg(description = "The maximum depth to which nested values are returned", required = false) Integer maxDepth,
+            @ToolArg(description = "The maximum number of elements returned of any one collection", required = false) Integer maxCollectionSize,
+            @ToolArg(description = "The maximum number of objects returned in all", required = false) Integer maxObjects,
+            @ToolArg(description = "Whether to skip attributes that cannot be read rather than fail", required = false) Boolean ignoreErrors,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection,
+            McpLog log) {
+        return metrics.tool("readAttribute", () -> {
+            ReadOptions options = new ReadOptions(maxDepth, maxCollectionSize, maxObjects, ignoreErrors);
 
-        // --- Security Check ---
-        String authToken = null;
+            return jolokiaServiceAsync("readAttribute", namespace, podName).flatMap(jolokiaService -> {
+                if (jolokiaService.isEmpty()) {
+                    return Uni.createFrom().item(notJolokiaPod(podName));
+                }
+
+                return metrics.phaseAsync("readAttribute", JanusMetrics.JOLOKIA,
+                        () -> jolokiaService.get().readAsync(mbean, attribute, options)).map(value -> {
+                    LOG.debugf("Read attribute %s of %s from pod %s", attribute, mbean, podName);
+
+                    JSONObject json = new JSONObject();
+                    json.put("mbean", mbean);
+                    json.put("attribute", attribute);
+                    json.put("value", value.orElse(null));
+                    return jsonResource("jolokia://" + podName + "/read", json, projection, podName);
+                }).onFailure().recoverWithItem(ex -> jolokiaFailure(namespace, podName, ex));
+            });
+        });
+    }
+
+    /**
+     * Samples a numeric JMX MBean attribute of a uniquely identified pod at a
+     * fixed interval, returning statistics of the samples rather than each one.
+     */
+    @Tool(description = "Sample a numeric attribute of a given MBean on a specific pod in a specific namespace a number of times at a fixed interval, "
+            + "returning the min, max, mean, percentiles and rate of change of the samples rather than the samples themselves. "
+            + "Use it to tell whether an attribute is trending, e.g. heap usage or the processing time of a route.")
+    public Uni<ToolResponse> sampleAttribute(
+            @ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
+            @ToolArg(description = "The name of the target pod") String podName,
+            @ToolArg(description = "The JMX MBean ObjectName") String mbean,
+            @ToolArg(description = "The name of the attribute to sample") String attribute,
+            @ToolArg(description = "The keys, separated by slashes, leading to the number in a composite value, e.g. used of HeapMemoryUsage", required = false) String path,
+            @ToolArg(description = "The number of samples to take") int samples,
+            @ToolArg(description = "The number of milliseconds between samples") long intervalMillis,
+            @ToolArg(description = "Whether the attribute is a counter that only rises, so that any decrease is a reset. Decided from the samples if not given", required = false) Boolean counter,
+            McpLog log) {
+        return metrics.tool("sampleAttribute", () -> {
+            if (samples < 2 || samples > maxSamples) {
+                return Uni.createFrom().item(ToolResponse.error(
+                        String.format("The number of samples must be between 2 and %d", maxSamples)));
+            }
+            Duration interval = Duration.ofMillis(intervalMillis);
+            if (interval.compareTo(minSampleInterval) < 0) {
+                return Uni.createFrom().item(ToolResponse.error(String.format(
+                        "The interval between samples must be at least %d milliseconds", minSampleInterval.toMillis())));
+            }
+            if (interval.multipliedBy(samples - 1).compareTo(maxSampleDuration) > 0) {
+                return Uni.createFrom().item(ToolResponse.error(String.format(
+                        "Sampling must not take longer than %d seconds, so take fewer samples or shorten the interval",
+                        maxSampleDuration.toSeconds())));
+            }
+
+            return jolokiaServiceAsync("sampleAttribute", namespace, podName).flatMap(jolokiaService -> {
+                if (jolokiaService.isEmpty()) {
+                    return Uni.createFrom().item(notJolokiaPod(podName));
+                }
+
+                AttributeSamples attributeSamples = new AttributeSamples(samples);
+                return metrics.phaseAsync("sampleAttribute", JanusMetrics.JOLOKIA,
+                        () -> sample(jolokiaService.get(), mbean, attribute, path, attributeSamples, samples, interval))
+                        .map(ignored -> {
+                            LOG.debugf("Sampled attribute %s of %s from pod %s: %d numeric, %d failed", attribute,
+                                    mbean, podName, attributeSamples.count(), attributeSamples.failed());
+                            if (attributeSamples.count() == 0) {
+                                if (attributeSamples.failed() > 0) {
+                                    return jolokiaFailure(namespace, podName,
+                                            new Exception(attributeSamples.lastError()));
+                                }
+                                return ToolResponse.error(String.format(
+                                        "The attribute %s of %s is not a number%s", attribute, mbean,
+                                        path != null && !path.isBlank() ? " at the path " + path : ""));
+                            }
+
+                            JSONObject json = attributeSamples.summary(counter);
+                            json.put("mbean", mbean);
+                            json.put("attribute", attribute);
+                            if (path != null && !path.isBlank()) {
+                                json.put("path", path);
+                            }
+                            json.put("intervalMillis", intervalMillis);
+                            return jsonResource("jolokia://" + podName + "/sample", json.toString(), podName);
+                        }).onFailure().recoverWithItem(ex -> jolokiaFailure(namespace, podName, ex));
+            });
+        });
+    }
+
+    /**
+     * Reads the attribute the given number of times, each read due at a fixed
+     * interval from the start of sampling so that slow reads do not stretch it.
+     * A read that fails is counted rather than ending the sampling.
+     */
+    private static Uni<Void> sample(JolokiaService service, String mbean, String attribute, String path,
+            AttributeSamples samples, int count, Duration interval) {
+        // Each read is made within the current span, as the delays hop threads
+        Context context = Context.current();
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            Uni<Void> sampling = Uni.createFrom().voidItem();
+            for (int i = 0; i < count; i++) {
+                long due = start + interval.toNanos() * i;
+                sampling = sampling.chain(() -> {
+                    long wait = due - System.nanoTime();
+                    Uni<Void> delay = wait > 0
+                            ? Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofNanos(wait))
+                            : Uni.createFrom().voidItem();
+                    return delay.chain(() -> JanusTracing.within(context,
+                            () -> service.readUncachedAsync(mbean, attribute, ReadOptions.DEFAULTS)))
+                            .invoke(value -> samples.add((System.nanoTime() - start) / 1_000_000,
+                                    value.orElse(null), path))
+                            .onFailure().invoke(samples::fail)
+                            .onFailure().recoverWithNull()
+                            .replaceWithVoid();
+                });
+            }
+            return sampling;
+        });
+    }
+
+    /**
+     * Subscribes to a numeric JMX MBean attribute of a uniquely identified pod,
+     * to be scraped in the background and its history served as a resource.
+     */
+    @Tool(description = "Collect a numeric attribute of a given MBean on a specific pod in a specific namespace in the background, keeping a history of its recent values. "
+            + "The history is read from the resource janus://history/{series}/{window}, e.g. janus://history/1a2b3c4d5e6f7a8b/30m, "
+            + "optionally followed by the number of points to downsample it to. Subscribing again to the same attribute refreshes the subscription.")
+    public ToolResponse subscribeAttribute(
+            @ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
+            @ToolArg(description = "The name of the target pod") String podName,
+            @ToolArg(description = "The JMX MBean ObjectName") String mbean,
+            @ToolArg(description = "The name of the attribute to collect") String attribute,
+            @ToolArg(description = "The keys, separated by slashes, leading to the number in a composite value, e.g. used of HeapMemoryUsage", required = false) String path,
+            McpLog log) {
+        return metrics.toolBlocking("subscribeAttribute", () -> {
+            if (!attributeCollector.isEnabled()) {
+                return ToolResponse.error("The collection of attributes in the background is disabled");
+            }
+
+            String token = getBearerToken();
+            Optional<JolokiaService> jolokiaService = jolokiaService("subscribeAttribute", namespace, podName, token);
+            if (jolokiaService.isEmpty()) {
+                return notJolokiaPod(podName);
+            }
+
+            AttributeCollector.Series series = attributeCollector.subscribe(namespace, podName, mbean, attribute, path,
+                    token);
+            LOG.debugf("Subscribed to attribute %s of %s from pod %s as series %s", attribute, mbean, podName,
+                    series.id());
+
+            JSONObject json = seriesJSON(series);
+            json.put("intervalSeconds", attributeCollector.interval().toSeconds());
+            json.put("retentionSeconds",
+                    attributeCollector.interval().multipliedBy(series.history().capacity()).toSeconds());
+            return jsonResource("jolokia://" + podName + "/subscribe", json.toString(), podName);
+        });
+    }
+
+    /**
+     * Stops collecting an attribute in the background.
+     */
+    @Tool(description = "Stop collecting an attribute in the background, discarding its history.")
+    public ToolResponse unsubscribeAttribute(
+            @ToolArg(description = "The series of the attribute, as returned when subscribing to it") String series,
+            McpLog log) {
+        return metrics.toolBlocking("unsubscribeAttribute", () -> {
+            String token = getBearerToken();
+            authenticate("unsubscribeAttribute", token, null);
+            Optional<AttributeCollector.Series> subscribed = attributeCollector.series(series, token);
+            if (subscribed.isPresent()) {
+                authorize("unsubscribeAttribute", token, subscribed.get().namespace(), AccessReviewCache.Access.PROXY);
+            }
+            if (subscribed.isEmpty() || !attributeCollector.unsubscribe(series, token)) {
+                return ToolResponse.error("No attribute is collected as the series " + series);
+            }
+            return ToolResponse.success("Stopped collecting the series " + series);
+        });
+    }
+
+    /**
+     * Lists the attributes collected in the background.
+     */
+    @Resource(uri = "janus://history", name = "collected-attributes", mimeType = "application/json",
+            description = "The attributes collected in the background for the caller, each with the series that its history is read from")
+    public TextResourceContents collectedAttributes(RequestUri uri) {
+        String token = authenticateReader();
+
+        // Only the series of the namespaces whose pods the caller may still reach are listed
+        Map<String, Boolean> readable = new HashMap<>();
+        JSONArray all = new JSONArray();
+        for (AttributeCollector.Series series : attributeCollector.allSeries(token)) {
+            if (readable.computeIfAbsent(series.namespace(), namespace -> mayRead(token, namespace))) {
+                all.add(seriesJSON(series));
+            }
+        }
+        return new TextResourceContents(uri.value(), all.toString(), "application/json");
+    }
+
+    /**
+     * Returns the recent history of an attribute collected in the background.
+     */
+    @ResourceTemplate(uriTemplate = "janus://history/{series}/{window}", name = "attribute-history",
+            mimeType = "application/json",
+            description = "The values of an attribute collected in the background over a recent window, e.g. 30m or 2h, downsampled to a number of points")
+    public TextResourceContents attributeHistory(String series, String window, RequestUri uri) {
+        return history(series, window, historyPoints, uri);
+    }
+
+    /**
+     * Returns the recent history of an attribute collected in the background,
+     * downsampled to the given number of points.
+     */
+    @ResourceTemplate(uriTemplate = "janus://history/{series}/{window}/{points}", name = "attribute-history-points",
+            mimeType = "application/json",
+            description = "The values of an attribute collected in the background over a recent window, e.g. 30m or 2h, downsampled to the given number of points")
+    public TextResourceContents attributeHistoryPoints(String series, String window, String points, RequestUri uri) {
+        int maxPoints;
+        try {
+            maxPoints = Integer.parseInt(points);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("The number of points '" + points + "' is not a number");
+        }
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("The number of points must be at least 1");
+        }
+        return history(series, window, maxPoints, uri);
+    }
+
+    private TextResourceContents history(String id, String window, int points, RequestUri uri) {
+        String token = authenticateReader();
+
+        Duration duration;
+        try {
+            duration = DurationConverter.parseDuration(window);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("The window '" + window + "' is not a duration such as 30m or 2h");
+        }
+
+        AttributeCollector.Series series = attributeCollector.series(id, token)
+                .orElseThrow(() -> new IllegalArgumentException("No attribute is collected as the series " + id));
+        authorizeReader(token, series.namespace());
+
+        JSONObject json = seriesJSON(series);
+        json.put("window", window);
+        json.put("columns", new JSONArray(List.of("time", "mean", "min", "max")));
+        json.put("points", series.history().window(System.currentTimeMillis() - duration.toMillis(), points));
+        return new TextResourceContents(uri.value(), json.toString(), "application/json");
+    }
+
+    /**
+     * Authenticates the caller of a resource, which fails the read if it is not authenticated.
+     *
+     * @return the bearer token of the caller
+     */
+    private String authenticateReader() {
+        String token = getBearerToken();
         try {
-            authToken = this.validateToken(namespace, podName);
+            validateToken(token);
+            return token;
         } catch (Exception ex) {
-            LOG.error("Pod " + podName + " produced an error while validation authentication", ex);
-            return ToolResponse.error("Failed to validate authentication: " + ex.getMessage());
+            throw new IllegalStateException("Failed to validate authentication: " + ex.getMessage(), ex);
         }
+    }
 
-        log.info("Received valid authorization token: " + authToken);
+    /**
+     * Authorizes the caller of a resource for proxying to the pods of the
+     * namespace, which fails the read if it may not.
+     */
+    private void authorizeReader(String token, String namespace) {
+        try {
+            accessReviews.authorize(token, namespace, AccessReviewCache.Access.PROXY);
+        } catch (NoPermissionException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        } catch (Exception ex) {
+            LOG.error("Namespace " + namespace + " produced an error while validating authorization", ex);
+            throw new IllegalStateException("Failed to validate authorization: " + ex.getMessage(), ex);
+        }
+    }
 
-        // --- Dynamic Service Discovery Logic ---
+    /**
+     * @return whether the caller of a resource may proxy to the pods of the namespace
+     */
+    private boolean mayRead(String token, String namespace) {
         try {
-            // Use the Kubernetes client to fetch the pod object.
-            LOG.debugf("Fetching the pod with name '%s' from namespace '%s' in cluster", podName, namespace);
-            Pod targetPod = k8sClient.pods().inNamespace(namespace).withName(podName).get();
+            authorizeReader(token, namespace);
+            return true;
+        } catch (IllegalStateException ex) {
+            if (ex.getCause() instanceof NoPermissionException) {
+                return false;
+            }
+            throw ex;
+        }
+    }
 
-            if (targetPod == null) {
-                return ToolResponse.error("Pod not found: " + podName + " in namespace: " + namespace);
+    private static JSONObject seriesJSON(AttributeCollector.Series series) {
+        JSONObject json = new JSONObject();
+        json.put("series", series.id());
+        json.put("namespace", series.namespace());
+        json.put("podName", series.podName());
+        json.put("mbean", series.mbean());
+        json.put("attribute", series.attribute());
+        if (series.path() != null) {
+            json.put("path", series.path());
+        }
+        json.put("values", series.history().size());
+        if (series.history().size() > 0) {
+            json.put("oldest", series.history().oldest());
+            json.put("newest", series.history().newest());
+        }
+        if (series.lastError() != null) {
+            json.put("lastError", series.lastError());
+        }
+        json.put("uriTemplate", "janus://history/" + series.id() + "/{window}");
+        return json;
+    }
+
+    /**
+     * Lists the pods that expose a jolokia port, a page at a time, from the pod index.
+     */
+    @Tool(description = "List the pods that expose a Jolokia port, optionally only those of a namespace or matching a label selector, "
+            + "in pages sorted by namespace and name. While a page has a nextCursor, pass it as the cursor to get the next page. "
+            + "If the namespaces are sharded between Janus replicas, all namespaces are those served by this replica.")
+    public ToolResponse listJolokiaPods(
+            @ToolArg(description = "The Kubernetes namespace of the pods, or all namespaces if not given", required = false) String namespace,
+            @ToolArg(description = "A label selector choosing the pods, e.g. app=my-app", required = false) String labelSelector,
+            @ToolArg(description = "The nextCursor of the previous page, to get the page after it", required = false) String cursor,
+            @ToolArg(description = "The most pods in the page", required = false) Integer pageSize,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection, McpLog log) {
+        return metrics.toolBlocking("listJolokiaPods", () -> {
+            if (pageSize != null && (pageSize < 1 || pageSize > maxListPageSize)) {
+                return ToolResponse.error("The page size must be between 1 and " + maxListPageSize);
             }
 
-            // Get the pod's internal IP address.
-            LOG.debugf("Fetching the ip address for pod with name '%s' from namespace '%s' in cluster", podName,
-                    namespace);
-            String podIp = targetPod.getStatus().getPodIP();
-            if (podIp == null || podIp.isEmpty()) {
-                return ToolResponse
-                        .error("Pod " + podName + " does not have an IP address yet. It may still be starting.");
+            String authToken = authenticate("listJolokiaPods", getBearerToken(), null);
+
+            String scope = namespace != null && !namespace.isBlank() ? namespace : null;
+            checkShard(scope);
+            authorize("listJolokiaPods", authToken, scope, AccessReviewCache.Access.LIST);
+            int size = pageSize != null ? pageSize : listPageSize;
+            List<PodIndex.Entry> entries;
+            try {
+                String after = cursor != null && !cursor.isBlank() ? MBeanPage.decode(cursor) : null;
+                // One more than the page holds tells whether there is a next page
+                entries = metrics.phase("listJolokiaPods", JanusMetrics.POD_LOOKUP,
+                        () -> podIndex.jolokiaPods(scope, labelSelector, after, size + 1));
+            } catch (IllegalArgumentException ex) {
+                return ToolResponse.error(ex.getMessage());
+            } catch (Exception ex) {
+                LOG.error("Listing the jolokia pods produced an error while querying the kubernetes cluster", ex);
+                return ToolResponse.error("Failed to query Kubernetes API: " + ex.getMessage());
+            }
+
+            JSONArray pods = new JSONArray(Math.min(entries.size(), size));
+            for (PodIndex.Entry entry : entries.subList(0, Math.min(entries.size(), size))) {
+                pods.add(podJSON(entry));
+            }
+
+            JSONObject page = new JSONObject();
+            page.put("pods", pods);
+            if (entries.size() > size) {
+                Pod last = entries.get(size - 1).pod();
+                page.put("nextCursor", MBeanPage.encode(
+                        PodIndex.key(last.getMetadata().getNamespace(), last.getMetadata().getName())));
             }
+            return jsonResource("janus://pods", page, projection, scope != null ? scope : "all namespaces");
+        });
+    }
 
-            LOG.debugf(String.format("The pod with name '%s' from namespace '%s' has the ip address '%s'", podName,
-                    namespace, podIp));
+    private static JSONObject podJSON(PodIndex.Entry entry) {
+        Pod pod = entry.pod();
+        JSONObject json = new JSONObject();
+        json.put("namespace", pod.getMetadata().getNamespace());
+        json.put("podName", pod.getMetadata().getName());
+        if (pod.getStatus() != null) {
+            json.put("phase", pod.getStatus().getPhase());
+            json.put("podIP", pod.getStatus().getPodIP());
+        }
+        if (pod.getMetadata().getLabels() != null) {
+            JSONObject labels = new JSONObject();
+            labels.putAll(pod.getMetadata().getLabels());
+            json.put("labels", labels);
+        }
+        if (entry.jolokiaUrl() != null) {
+            json.put("jolokiaUrl", entry.jolokiaUrl().toString());
+        }
+        return json;
+    }
 
-            // Construct the Jolokia URL on the fly.
-            URL jolokiaUrl = null;
+    /**
+     * Lists the ObjectNames of the JMX MBeans on a uniquely identified pod, a page at a time.
+     */
+    @Tool(description = "List the ObjectNames of the MBeans on a specific pod in a specific namespace, in sorted pages. "
+            + "While a page has a nextCursor, pass it as the cursor to get the next page.")
+    public ToolResponse listMBeans(
+            @ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
+            @ToolArg(description = "The name of the target pod") String podName,
+            @ToolArg(description = "A domain, e.g. java.lang, or an ObjectName pattern, e.g. org.apache.camel:type=routes,*, "
+                    + "that the MBeans must match", required = false) String pattern,
+            @ToolArg(description = "The nextCursor of the previous page, to get the page after it", required = false) String cursor,
+            @ToolArg(description = "The most MBeans in the page", required = false) Integer pageSize,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection, McpLog log) {
+        return metrics.toolBlocking("listMBeans", () -> {
+            if (pageSize != null && (pageSize < 1 || pageSize > maxListPageSize)) {
+                return ToolResponse.error("The page size must be between 1 and " + maxListPageSize);
+            }
+
+            Optional<JolokiaService> jolokiaService = jolokiaService("listMBeans", namespace, podName, getBearerToken());
+            if (jolokiaService.isEmpty()) {
+                return notJolokiaPod(podName);
+            }
+
+            List<String> names;
             try {
-                jolokiaUrl = jolokiaConnection.connectionURL(targetPod);
+                names = metrics.phase("listMBeans", JanusMetrics.JOLOKIA, () -> jolokiaService.get().listMBeans());
             } catch (Exception ex) {
-                LOG.error("Pod " + podName + " produced an error while deriving the url to the jolokia service", ex);
-                return ToolResponse.error(
-                        String.format("Pod '%s' produced an error while deriving the url to the jolokia service: %s",
-                                podName, ex.getMessage()));
+                return jolokiaFailure(namespace, podName, ex);
             }
 
-            if (jolokiaUrl == null) {
-                return ToolResponse.success(String.format(
-                        "The pod '%s' was found but does not expose a Jolokia port, so it is not a pod of interest.",
-                        podName));
+            try {
+                JSONObject page = MBeanPage.page(names, pattern, cursor, pageSize != null ? pageSize : listPageSize);
+                return jsonResource("jolokia://" + podName + "/mbeans", page, projection, podName);
+            } catch (IllegalArgumentException ex) {
+                return ToolResponse.error(ex.getMessage());
             }
+        });
+    }
 
-            LOG.debugf("Pod '%s' has jolokia url of %s'", podName, jolokiaUrl);
+    /**
+     * Lists the attributes of a JMX MBean on a uniquely identified pod.
+     */
+    @Tool(description = "List the attributes, with their types and descriptions, of a given MBean on a specific pod in a specific namespace.")
+    public ToolResponse listAttributes(
+            @ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
+            @ToolArg(description = "The name of the target pod") String podName,
+            @ToolArg(description = "The JMX MBean ObjectName") String mbean,
+            @ToolArg(description = "The name of an attribute, to list only that attribute", required = false) String name,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection, McpLog log) {
+        return metrics.toolBlocking("listAttributes", () -> {
+            return mbeanMetadata("listAttributes", namespace, podName, mbean, "attr", name, "attributes", projection);
+        });
+    }
 
-            // Placeholder for the actual Jolokia client logic.
-            // Here, we would use an HTTP client to connect to the dynamically
-            // constructed 'jolokiaUrl' and perform the JMX read operation,
-            // passing along the auth token.
-            String mockResponse = String.format("Mock value for %s on pod %s is 54321.", attribute, podName);
-            log.info(mockResponse);
-            return ToolResponse.success(mockResponse);
+    /**
+     * Lists the operations of a JMX MBean on a uniquely identified pod.
+     */
+    @Tool(description = "List the operations, with their arguments, return types and descriptions, of a given MBean on a specific pod in a specific namespace.")
+    public ToolResponse listOperations(
+            @ToolArg(description = "The Kubernetes namespace of the target pod") String namespace,
+            @ToolArg(description = "The name of the target pod") String podName,
+            @ToolArg(description = "The JMX MBean ObjectName") String mbean,
+            @ToolArg(description = "The name of an operation, to list only that operation", required = false) String name,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection, McpLog log) {
+        return metrics.toolBlocking("listOperations", () -> {
+            return mbeanMetadata("listOperations", namespace, podName, mbean, "op", name, "operations", projection);
+        });
+    }
 
-        } catch (Exception e) {
-            // Catch any potential exceptions from the Kubernetes API client.
-            return ToolResponse.error("Failed to query Kubernetes API: " + e.getMessage());
+    /**
+     * Returns one part of the metadata of an MBean, shared by the replicas of the pod.
+     * A single named attribute or operation is taken from the shared metadata if it
+     * has been fetched, otherwise only that one is asked of the agent.
+     */
+    private ToolResponse mbeanMetadata(String tool, String namespace, String podName, String mbean, String key,
+            String name, String resource, String projection) {
+        String authToken = getBearerToken();
+        Optional<Target> target = target(tool, namespace, podName, authToken);
+        if (target.isEmpty()) {
+            return notJolokiaPod(podName);
         }
+
+        try {
+            Object part;
+            if (name == null || name.isBlank()) {
+                JSONObject metadata = metrics.phase(tool, JanusMetrics.JOLOKIA,
+                        () -> mbeanMetadataCache.metadata(target.get().pod(), mbean, authToken, target.get().service()));
+                part = metadata.getOrDefault(key, new JSONObject());
+            } else {
+                Optional<JSONObject> cached = mbeanMetadataCache.cached(target.get().pod(), mbean, authToken);
+                Object info;
+                if (cached.isPresent()) {
+                    info = cached.get().get(key) instanceof Map<?, ?> map ? map.get(name) : null;
+                    if (info == null) {
+                        return ToolResponse.error(String.format("The MBean '%s' has no %s named '%s'", mbean,
+                                resource.substring(0, resource.length() - 1), name));
+                    }
+                } else {
+                    info = metrics.phase(tool, JanusMetrics.JOLOKIA, () -> target.get().service()
+                            .list(JolokiaService.listPath(mbean, key, name), ReadOptions.DEFAULTS));
+                }
+                JSONObject named = new JSONObject();
+                named.put(name, info);
+                part = named;
+            }
+            return jsonResource("jolokia://" + podName + "/" + resource, part, projection, podName);
+        } catch (Exception ex) {
+            return jolokiaFailure(namespace, podName, ex);
+        }
+    }
+
+    /**
+     * Reads a number of JMX MBean attributes from every jolokia pod selected by
+     * a label selector or owned by a workload, querying the pods concurrently.
+     */
+    @Tool(description = "Read attributes, from one or more MBeans, on every jolokia pod in a namespace that is selected by a label selector or belongs to a workload. "
+            + "The pods are queried concurrently and pods that fail or are too slow to answer are reported individually.")
+    public ToolResponse readAttributesAcrossPods(
+            @ToolArg(description = "The Kubernetes namespace of the target pods") String namespace,
+            @ToolArg(description = "A label selector choosing the target pods, e.g. app=my-app", required = false) String labelSelector,
+            @ToolArg(description = "A workload whose pods are the target pods, given as kind/name, e.g. deployment/my-app", required = false) String workload,
+            @ToolArg(description = "The attributes to read, each given by its JMX MBean ObjectName and attribute name") List<MBeanAttribute> attributes,
+            @ToolArg(description = "The maximum number of seconds to wait for each pod", required = false) Integer timeoutSeconds,
+            @ToolArg(description = PROJECTION_DESCRIPTION, required = false) String projection,
+            McpLog log) {
+        return metrics.toolBlocking("readAttributesAcrossPods", () -> {
+            if (attributes == null || attributes.isEmpty()) {
+                return ToolResponse.error("No attributes were given to read");
+            }
+
+            boolean hasSelector = labelSelector != null && !labelSelector.isBlank();
+            boolean hasWorkload = workload != null && !workload.isBlank();
+            if (hasSelector == hasWorkload) {
+                return ToolResponse.error("Exactly one of a label selector or a workload must be given to choose the pods");
+            }
+
+            String authToken = authenticate("readAttributesAcrossPods", getBearerToken(), null);
+            checkShard(namespace);
+            authorize("readAttributesAcrossPods", authToken, namespace, AccessReviewCache.Access.LIST);
+            authorize("readAttributesAcrossPods", authToken, namespace, AccessReviewCache.Access.PROXY);
+
+            List<Pod> pods;
+            try {
+                pods = metrics.phase("readAttributesAcrossPods", JanusMetrics.POD_LOOKUP, () -> hasSelector
+                        ? podIndex.pods(namespace, labelSelector)
+                        : podIndex.workloadPods(namespace, workload));
+            } catch (IllegalArgumentException ex) {
+                return ToolResponse.error(ex.getMessage());
+            } catch (Exception ex) {
+                LOG.error("Namespace " + namespace + " produced an error while querying the kubernetes cluster", ex);
+                return ToolResponse.error("Failed to query Kubernetes API: " + ex.getMessage());
+            }
+
+            List<JolokiaRequest> requests = attributes.stream()
+                    .map(attribute -> JolokiaRequest.read(attribute.mbean(), attribute.attribute()))
+                    .toList();
+            Duration timeout = timeoutSeconds != null && timeoutSeconds > 0 ? Duration.ofSeconds(timeoutSeconds)
+                    : jolokiaFanOut.podTimeout();
+
+            List<JolokiaFanOut.PodResult> podResults;
+            try {
+                List<Pod> targets = pods;
+                podResults = metrics.phase("readAttributesAcrossPods", JanusMetrics.JOLOKIA,
+                        () -> jolokiaFanOut.bulk(targets, authToken, requests, timeout));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return ToolResponse.error("Interrupted while querying the pods of namespace " + namespace);
+            } catch (Exception ex) {
+                LOG.error("Namespace " + namespace + " produced an error while querying its pods", ex);
+                return ToolResponse.error("Failed to query the pods of namespace " + namespace + ": " + ex.getMessage());
+            }
+
+            JSONArray values = new JSONArray(podResults.size());
+            Map<JolokiaFanOut.PodResult.Status, Integer> counts = new EnumMap<>(JolokiaFanOut.PodResult.Status.class);
+            for (JolokiaFanOut.PodResult podResult : podResults) {
+                values.add(podResult.toJSON());
+                counts.merge(podResult.status(), 1, Integer::sum);
+            }
+            LOG.debugf("Fanned out to %d jolokia pods of %d matching pods in namespace %s: %s", podResults.size(),
+                    pods.size(), namespace, counts);
+
+            JSONObject summary = new JSONObject();
+            summary.put("matchedPods", pods.size());
+            summary.put("jolokiaPods", podResults.size());
+            summary.put("succeeded", counts.getOrDefault(JolokiaFanOut.PodResult.Status.OK, 0));
+            summary.put("failed", counts.getOrDefault(JolokiaFanOut.PodResult.Status.ERROR, 0));
+            summary.put("timedOut", counts.getOrDefault(JolokiaFanOut.PodResult.Status.TIMEOUT, 0));
+            summary.put("pods", values);
+
+            return jsonResource("jolokia://" + namespace + "/read", summary, projection, namespace);
+        });
     }
 }
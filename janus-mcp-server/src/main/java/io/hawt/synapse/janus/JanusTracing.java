@@ -0,0 +1,167 @@
+package io.hawt.synapse.janus;
+
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The OpenTelemetry spans of the MCP tools, exported by the Quarkus OpenTelemetry extension.
+ *
+ * Each tool call is a span with a child span for each of its phases, as timed
+ * by {@link JanusMetrics}, and a client span for each request sent to a jolokia
+ * agent. The W3C trace context is added to those requests so that traces of
+ * the agent link up with the tool call that caused them.
+ *
+ * The context is handed across threads explicitly, as the tools hop from the
+ * event loop to the worker pool and from there to the threads of the fan-out.
+ * As the context propagation of Quarkus restores the context in which a uni
+ * was created when it is subscribed to, the unis of a span are created while
+ * that span is current.
+ */
+@ApplicationScoped
+public class JanusTracing {
+
+    public static final AttributeKey<String> TOOL = AttributeKey.stringKey("janus.tool");
+    public static final AttributeKey<String> PHASE = AttributeKey.stringKey("janus.phase");
+    public static final AttributeKey<String> NAMESPACE = AttributeKey.stringKey("k8s.namespace.name");
+    public static final AttributeKey<String> POD = AttributeKey.stringKey("k8s.pod.name");
+
+    private static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.request.method");
+    private static final AttributeKey<String> URL = AttributeKey.stringKey("url.full");
+    private static final AttributeKey<String> SERVER_ADDRESS = AttributeKey.stringKey("server.address");
+    private static final AttributeKey<Long> SERVER_PORT = AttributeKey.longKey("server.port");
+    private static final AttributeKey<Long> STATUS_CODE = AttributeKey.longKey("http.response.status_code");
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    private Tracer tracer;
+
+    @PostConstruct
+    void init() {
+        tracer = openTelemetry.getTracer("io.hawt.synapse.janus");
+    }
+
+    /**
+     * Starts the span of a tool call, as a child of the current span if any.
+     */
+    public Span startTool(String tool) {
+        return tracer.spanBuilder(tool)
+                .setAttribute(TOOL, tool)
+                .startSpan();
+    }
+
+    /**
+     * Starts the span of a phase of a tool call, as a child of the current span.
+     */
+    public Span startPhase(String tool, String phase) {
+        return tracer.spanBuilder(tool + " " + phase)
+                .setAttribute(TOOL, tool)
+                .setAttribute(PHASE, phase)
+                .startSpan();
+    }
+
+    /**
+     * Starts the span of the requests to the jolokia agent of one pod amongst many.
+     */
+    public Span startTarget(String namespace, String podName) {
+        return tracer.spanBuilder("jolokia target")
+                .setAttribute(NAMESPACE, namespace)
+                .setAttribute(POD, podName)
+                .startSpan();
+    }
+
+    /**
+     * Starts the client span of a request to a jolokia agent.
+     */
+    public Span startRequest(String method, String url, String host, int port) {
+        return tracer.spanBuilder(method)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute(HTTP_METHOD, method)
+                .setAttribute(URL, url)
+                .setAttribute(SERVER_ADDRESS, host)
+                .setAttribute(SERVER_PORT, (long) port)
+                .startSpan();
+    }
+
+    /**
+     * Records the status code of the response to a request on its client span.
+     */
+    public static void status(Span span, int statusCode) {
+        span.setAttribute(STATUS_CODE, (long) statusCode);
+        if (statusCode >= 400) {
+            span.setStatus(StatusCode.ERROR);
+        }
+    }
+
+    /**
+     * Adds the W3C trace context of the given context to the headers of an outgoing request.
+     */
+    public void inject(Context context, BiConsumer<String, String> headers) {
+        openTelemetry.getPropagators().getTextMapPropagator()
+                .inject(context, headers, (carrier, key, value) -> carrier.accept(key, value));
+    }
+
+    /**
+     * Names the pod that a tool call targets on the current span.
+     */
+    public static void target(String namespace, String podName) {
+        Span.current().setAttribute(NAMESPACE, namespace).setAttribute(POD, podName);
+    }
+
+    /**
+     * Ends a span, recording the failure that ended it if any.
+     */
+    public static void end(Span span, Throwable failure) {
+        if (failure != null) {
+            fail(span, failure);
+        }
+        span.end();
+    }
+
+    /**
+     * Marks a span as failed, recording the failure.
+     */
+    public static void fail(Span span, Throwable failure) {
+        span.recordException(failure);
+        span.setStatus(StatusCode.ERROR, String.valueOf(failure.getMessage()));
+    }
+
+    /**
+     * Subscribes to the uni of the given supplier with the given context made
+     * current, so that spans started as the uni is subscribed are its children.
+     */
+    public static <T> Uni<T> within(Context context, Supplier<Uni<T>> uni) {
+        return Uni.createFrom().emitter(emitter -> {
+            Cancellable subscription;
+            try (Scope scope = context.makeCurrent()) {
+                subscription = uni.get().subscribe().with(emitter::complete, emitter::fail);
+            }
+            emitter.onTermination(subscription::cancel);
+        });
+    }
+
+    /**
+     * Offloads the given supplier to the executor, carrying the context current
+     * at the time of subscription over to the thread that runs it and so to the
+     * stages that follow on from its item.
+     */
+    public static <T> Uni<T> offload(Supplier<T> supplier, Executor executor) {
+        return Uni.createFrom().deferred(() -> Uni.createFrom().item(supplier)
+                .runSubscriptionOn(Context.current().wrap(executor)));
+    }
+}
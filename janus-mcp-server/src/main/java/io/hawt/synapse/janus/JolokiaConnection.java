@@ -4,8 +4,6 @@ import java.net.URL;
 
 import org.jboss.logging.Logger;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-
 import io.fabric8.kubernetes.api.model.Pod;
 
 public interface JolokiaConnection {
@@ -21,9 +19,8 @@ public interface JolokiaConnection {
      *
      * @param pod The Kubernetes Pod object from the Fabric8 client.
      * @return true if a 'jolokia' port is found, false otherwise.
-     * @throws JsonProcessingException
      */
-    boolean hasJolokiaPort(Pod pod) throws JsonProcessingException;
+    boolean hasJolokiaPort(Pod pod);
 
     /**
      * 
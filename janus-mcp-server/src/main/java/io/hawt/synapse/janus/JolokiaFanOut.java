@@ -0,0 +1,214 @@
+package io.hawt.synapse.janus;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Sends the same bulk request to many jolokia pods concurrently.
+ *
+ * Each pod is queried on its own virtual thread, since the jolokia client
+ * blocks, with no more than a bounded number of pods in flight at once. Each
+ * pod has its own deadline, after which its request is abandoned and it is
+ * reported as timed out, so slow or unreachable pods do not hold up the
+ * results of the others.
+ *
+ * Each pod is traced by a span of its own, a child of the span current when
+ * the fan-out starts.
+ */
+@ApplicationScoped
+public class JolokiaFanOut {
+
+    private static final Logger LOG = Logger.getLogger(JolokiaFanOut.class);
+
+    /**
+     * The outcome of querying one pod.
+     *
+     * @param podName the name of the pod
+     * @param status  whether the pod answered, failed or timed out
+     * @param results the results of the bulk request, if the pod answered
+     * @param error   the reason the pod failed or timed out
+     */
+    public record PodResult(String podName, Status status, List<JolokiaResult> results, String error) {
+
+        public enum Status {
+            OK, ERROR, TIMEOUT
+        }
+
+        static PodResult ok(String podName, List<JolokiaResult> results) {
+            return new PodResult(podName, Status.OK, results, null);
+        }
+
+        static PodResult error(String podName, String error) {
+            return new PodResult(podName, Status.ERROR, List.of(), error);
+        }
+
+        static PodResult timeout(String podName, Duration timeout) {
+            return new PodResult(podName, Status.TIMEOUT, List.of(),
+                    "No response within " + timeout.toMillis() + "ms");
+        }
+
+        public JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("pod", podName);
+            json.put("status", status.name().toLowerCase());
+            if (status == Status.OK) {
+                JSONArray values = new JSONArray(results.size());
+                for (JolokiaResult result : results) {
+                    values.add(result.toJSON());
+                }
+                json.put("results", values);
+            } else {
+                json.put("error", error);
+            }
+            return json;
+        }
+    }
+
+    @Inject
+    JolokiaServiceFactory jolokiaServiceFactory;
+
+    @Inject
+    PodIndex podIndex;
+
+    @Inject
+    JolokiaConnection jolokiaConnection;
+
+    @Inject
+    JanusMetrics metrics;
+
+    @Inject
+    JanusTracing tracing;
+
+    @ConfigProperty(name = "janus.fan-out.max-concurrency", defaultValue = "16")
+    int maxConcurrency;
+
+    @ConfigProperty(name = "janus.fan-out.pod-timeout", defaultValue = "5s")
+    Duration podTimeout;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the default deadline of each pod
+     */
+    public Duration podTimeout() {
+        return podTimeout;
+    }
+
+    /**
+     * Sends the requests to every given pod that exposes a jolokia port. Pods
+     * without a jolokia port are left out of the results.
+     *
+     * @param pods      the pods to query
+     * @param authToken the token to present to the pods
+     * @param requests  the requests to send to each pod
+     * @param timeout   the deadline of each pod, starting once its request is sent
+     * @return the result of each jolokia pod
+     */
+    public List<PodResult> bulk(List<Pod> pods, String authToken, List<JolokiaRequest> requests, Duration timeout)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<PodResult>> futures = new ArrayList<>(pods.size());
+        Context context = Context.current();
+
+        for (Pod pod : pods) {
+            String namespace = pod.getMetadata().getNamespace();
+            String podName = pod.getMetadata().getName();
+            URL jolokiaUrl;
+            try {
+                jolokiaUrl = jolokiaUrl(pod);
+            } catch (Exception ex) {
+                futures.add(CompletableFuture.completedFuture(PodResult.error(podName, ex.getMessage())));
+                continue;
+            }
+
+            if (jolokiaUrl == null) {
+                LOG.debugf("Pod '%s' does not expose a jolokia port so is left out of the fan-out", podName);
+                continue;
+            }
+
+            // Wait for a free slot so no more than maxConcurrency pods are queried at once
+            permits.acquire();
+
+            CompletableFuture<PodResult> result = new CompletableFuture<>();
+            // Claimed by whichever of the task and its timeout comes first, as a
+            // task cancelled before it starts never runs to release its permit
+            AtomicBoolean started = new AtomicBoolean();
+            Span span = tracing.startTarget(namespace, podName);
+            Future<?> task = executor.submit(context.with(span).wrap(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    JolokiaService service = jolokiaServiceFactory.createService(jolokiaUrl.toString(), authToken);
+                    result.complete(PodResult.ok(podName, service.bulk(requests)));
+                } catch (Exception ex) {
+                    // Once timed out, the pod is already counted and its span ended
+                    if (!result.isDone()) {
+                        LOG.debugf(ex, "Pod '%s' produced an error during the fan-out", podName);
+                        metrics.targetFailure(namespace, podName, ex);
+                        JanusTracing.fail(span, ex);
+                        result.complete(PodResult.error(podName, ex.getMessage()));
+                    }
+                } finally {
+                    // Only freed once the request is over, so the pods in flight never exceed maxConcurrency
+                    permits.release();
+                }
+            }));
+
+            result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, ex) -> {
+                JanusTracing.end(span, ex);
+                if (ex != null) {
+                    if (started.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                    // Interrupting the virtual thread aborts its blocking socket read
+                    task.cancel(true);
+                    metrics.targetFailure(namespace, podName, true);
+                }
+            });
+            futures.add(result.exceptionally(ex -> PodResult.timeout(podName, timeout)));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private URL jolokiaUrl(Pod pod) throws Exception {
+        String podIp = pod.getStatus() != null ? pod.getStatus().getPodIP() : null;
+        if (podIp == null || podIp.isEmpty()) {
+            if (!jolokiaConnection.hasJolokiaPort(pod)) {
+                return null;
+            }
+            throw new Exception("Pod " + pod.getMetadata().getName()
+                    + " does not have an IP address yet. It may still be starting.");
+        }
+
+        return podIndex.connectionURL(pod);
+    }
+}
@@ -0,0 +1,27 @@
+package io.hawt.synapse.janus;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single request to be sent to a jolokia agent as part of a bulk request.
+ *
+ * @param type      the type of the request
+ * @param mbean     the ObjectName of the target MBean
+ * @param name      the attribute to read or the operation to execute
+ * @param arguments the arguments of an operation, empty for a read
+ */
+public record JolokiaRequest(Type type, String mbean, String name, List<Object> arguments) {
+
+    public enum Type {
+        READ, EXEC
+    }
+
+    public static JolokiaRequest read(String mbean, String attr) {
+        return new JolokiaRequest(Type.READ, mbean, attr, List.of());
+    }
+
+    public static JolokiaRequest exec(String mbean, String op, Object... args) {
+        return new JolokiaRequest(Type.EXEC, mbean, op, Arrays.asList(args));
+    }
+}
@@ -0,0 +1,42 @@
+package io.hawt.synapse.janus;
+
+import org.jolokia.json.JSONObject;
+
+/**
+ * The outcome of one {@link JolokiaRequest} of a bulk request. Each request
+ * succeeds or fails independently of the others.
+ *
+ * @param request the request this is the result of
+ * @param value   the value returned by the agent, if successful
+ * @param error   the error reported by the agent, or null if successful
+ */
+public record JolokiaResult(JolokiaRequest request, Object value, String error) {
+
+    public static JolokiaResult success(JolokiaRequest request, Object value) {
+        return new JolokiaResult(request, value, null);
+    }
+
+    public static JolokiaResult failure(JolokiaRequest request, String error) {
+        return new JolokiaResult(request, null, error);
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    /**
+     * @return the result as JSON, identifying the request it belongs to
+     */
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("type", request.type().name().toLowerCase());
+        json.put("mbean", request.mbean());
+        json.put(request.type() == JolokiaRequest.Type.READ ? "attribute" : "operation", request.name());
+        if (isError()) {
+            json.put("error", error);
+        } else {
+            json.put("value", value);
+        }
+        return json;
+    }
+}
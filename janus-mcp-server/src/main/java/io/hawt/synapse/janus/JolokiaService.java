@@ -2,22 +2,112 @@ package io.hawt.synapse.janus;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.jolokia.json.JSONObject;
 
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.unchecked.Unchecked;
+
 public interface JolokiaService {
 
     Optional<JSONObject> version() throws Exception;
 
+    /**
+     * @return the ObjectNames of all the MBeans, in order
+     */
     List<String> listMBeans() throws Exception;
 
+    /**
+     * @return the metadata of the given MBean, i.e. its attributes, operations and description
+     */
+    JSONObject mbeanInfo(String mbean) throws Exception;
+
+    /**
+     * Lists the part of the agent's tree of MBean metadata below the given path,
+     * asking the agent to trim it according to the given options.
+     *
+     * @param path    the path into the tree, as built by {@link #listPath(String, String...)},
+     *                or null for the whole tree
+     * @param options the processing options, of which the agent honours maxDepth for lists
+     * @return the metadata below the path, an array for the path of an overloaded operation
+     */
+    Object list(String path, ReadOptions options) throws Exception;
+
     JSONObject listOperations(String mbean) throws Exception;
 
     JSONObject listAttributes(String mbean) throws Exception;
 
     Optional<Object> read(String mbean, String attr) throws Exception;
 
+    /**
+     * Reads an attribute, asking the agent to trim the value according to the given options.
+     */
+    Optional<Object> read(String mbean, String attr, ReadOptions options) throws Exception;
+
     Optional<Object> write(String mbean, String attr, Object value) throws Exception;
 
     Optional<Object> exec(String mbean, String op, Object... args) throws Exception;
-}
\ No newline at end of file
+
+    /**
+     * Sends the given requests to the jolokia agent in a single bulk request.
+     *
+     * @param requests the read and exec requests to send
+     * @return the result of each request, in the order of the requests
+     */
+    List<JolokiaResult> bulk(List<JolokiaRequest> requests) throws Exception;
+
+    /**
+     * Builds the path into the list tree of the given MBean and then the given
+     * keys, e.g. attr and the name of an attribute, escaping each part.
+     */
+    static String listPath(String mbean, String... keys) {
+        int colon = mbean.indexOf(':');
+        StringBuilder path = new StringBuilder(escape(colon < 0 ? mbean : mbean.substring(0, colon)));
+        if (colon >= 0) {
+            path.append('/').append(escape(mbean.substring(colon + 1)));
+        }
+        for (String key : keys) {
+            path.append('/').append(escape(key));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Escapes a part of a jolokia path, in which a slash separates the parts.
+     */
+    private static String escape(String part) {
+        return part.replace("!", "!!").replace("/", "!/");
+    }
+
+    /*
+     * Asynchronous variants of the above. These default to running the blocking
+     * methods on a worker thread; non-blocking implementations override them.
+     */
+
+    default Uni<Optional<JSONObject>> versionAsync() {
+        return offload(Unchecked.supplier(this::version));
+    }
+
+    default Uni<Optional<Object>> readAsync(String mbean, String attr, ReadOptions options) {
+        return offload(Unchecked.supplier(() -> read(mbean, attr, options)));
+    }
+
+    /**
+     * Reads an attribute as {@link #readAsync(String, String, ReadOptions)} does,
+     * but never answered from a cache of recent reads, e.g. to sample how the
+     * attribute changes.
+     */
+    default Uni<Optional<Object>> readUncachedAsync(String mbean, String attr, ReadOptions options) {
+        return readAsync(mbean, attr, options);
+    }
+
+    default Uni<List<JolokiaResult>> bulkAsync(List<JolokiaRequest> requests) {
+        return offload(Unchecked.supplier(() -> bulk(requests)));
+    }
+
+    private static <T> Uni<T> offload(Supplier<T> supplier) {
+        return JanusTracing.offload(supplier, Infrastructure.getDefaultWorkerPool());
+    }
+}
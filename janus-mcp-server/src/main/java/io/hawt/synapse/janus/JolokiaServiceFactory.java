@@ -11,4 +11,12 @@ public interface JolokiaServiceFactory {
      * @return A new, ready-to-use JolokiaService.
      */
     JolokiaService createService(String url, String authToken) throws Exception;
+
+    /**
+     * Discards the state held for a jolokia endpoint, e.g. as its pod has been
+     * deleted or has moved to a new address.
+     *
+     * @param url The base URL of the Jolokia endpoint
+     */
+    void invalidate(String url);
 }
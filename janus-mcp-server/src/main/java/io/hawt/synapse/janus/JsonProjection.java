@@ -0,0 +1,69 @@
+package io.hawt.synapse.janus;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+import org.jolokia.json.JSONStructure;
+import org.jolokia.json.JSONWriter;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+
+/**
+ * Projects the JSON that a tool returns through a JSONPath expression, so that
+ * only the part the client asked for is serialized and sent back to it.
+ *
+ * The expression is evaluated over the maps and lists of the Jolokia JSON as
+ * they are, without serializing them first. Compiled expressions are cached by
+ * JsonPath itself.
+ */
+public final class JsonProjection {
+
+    private static final Configuration CONFIGURATION = Configuration.defaultConfiguration();
+
+    private JsonProjection() {
+    }
+
+    /**
+     * @param json       the maps, lists and values to project
+     * @param expression a JSONPath expression, or null or blank to select the whole of the JSON
+     * @return the selected part of the JSON, a list of the matches if the expression is indefinite
+     * @throws IllegalArgumentException if the expression is not valid or a definite expression matches nothing
+     */
+    public static Object project(Object json, String expression) {
+        if (expression == null || expression.isBlank()) {
+            return json;
+        }
+
+        try {
+            return JsonPath.using(CONFIGURATION).parse(json).read(expression);
+        } catch (PathNotFoundException ex) {
+            throw new IllegalArgumentException(
+                    "The projection '" + expression + "' matched nothing: " + ex.getMessage(), ex);
+        } catch (InvalidPathException ex) {
+            throw new IllegalArgumentException(
+                    "The projection '" + expression + "' is not a valid JSONPath expression: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return the given maps, lists and values serialized as JSON
+     */
+    public static String toJSONString(Object json) {
+        if (json instanceof JSONStructure structure) {
+            return structure.toJSONString();
+        }
+
+        try {
+            StringWriter writer = new StringWriter();
+            JSONWriter.serialize(json, writer);
+            return writer.toString();
+        } catch (IOException ex) {
+            // Writing to a string does not fail
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.hawt.synapse.janus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import io.fabric8.kubernetes.api.model.LabelSelector;
+import io.fabric8.kubernetes.api.model.LabelSelectorRequirement;
+
+/**
+ * Evaluates Kubernetes label selectors, given in the kubectl syntax, against
+ * the labels of locally held resources.
+ *
+ * Supported requirements are {@code key=value}, {@code key==value},
+ * {@code key!=value}, {@code key in (a,b)}, {@code key notin (a,b)},
+ * {@code key} and {@code !key}, separated by commas.
+ */
+public final class LabelSelectors {
+
+    private static final Pattern SET_REQUIREMENT = Pattern.compile("^(\\S+)\\s+(in|notin)\\s*\\((.*)\\)$");
+
+    private LabelSelectors() {
+    }
+
+    /**
+     * @param selector the label selector, or null or blank to select everything
+     * @return a predicate testing whether a set of labels matches the selector
+     * @throws IllegalArgumentException if the selector cannot be parsed
+     */
+    public static Predicate<Map<String, String>> parse(String selector) {
+        if (selector == null || selector.isBlank()) {
+            return labels -> true;
+        }
+
+        List<Predicate<Map<String, String>>> requirements = new ArrayList<>();
+        for (String requirement : split(selector)) {
+            requirements.add(requirement(requirement.trim(), selector));
+        }
+
+        return labels -> {
+            Map<String, String> actual = labels != null ? labels : Map.of();
+            return requirements.stream().allMatch(requirement -> requirement.test(actual));
+        };
+    }
+
+    private static List<String> split(String selector) {
+        // Commas also separate the values of set requirements so only split outside parentheses
+        List<String> requirements = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < selector.length(); i++) {
+            char c = selector.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                requirements.add(selector.substring(start, i));
+                start = i + 1;
+            }
+        }
+        requirements.add(selector.substring(start));
+        return requirements;
+    }
+
+    private static Predicate<Map<String, String>> requirement(String requirement, String selector) {
+        if (requirement.isEmpty()) {
+            throw new IllegalArgumentException("The label selector '" + selector + "' has an empty requirement");
+        }
+
+        Matcher matcher = SET_REQUIREMENT.matcher(requirement);
+        if (matcher.matches()) {
+            String key = matcher.group(1);
+            Set<String> values = Arrays.stream(matcher.group(3).split(",")).map(String::trim)
+                    .collect(Collectors.toSet());
+            return "in".equals(matcher.group(2))
+                    ? labels -> values.contains(labels.get(key))
+                    : labels -> !values.contains(labels.get(key));
+        }
+
+        if (requirement.startsWith("!")) {
+            String key = requirement.substring(1).trim();
+            return labels -> !labels.containsKey(key);
+        }
+
+        int index = requirement.indexOf("!=");
+        if (index > 0) {
+            String key = requirement.substring(0, index).trim();
+            String value = requirement.substring(index + 2).trim();
+            return labels -> !value.equals(labels.get(key));
+        }
+
+        index = requirement.indexOf('=');
+        if (index > 0) {
+            String key = requirement.substring(0, index).trim();
+            int valueStart = requirement.startsWith("==", index) ? index + 2 : index + 1;
+            String value = requirement.substring(valueStart).trim();
+            return labels -> value.equals(labels.get(key));
+        }
+
+        if (requirement.contains(" ") || requirement.contains("(") || requirement.contains(")")) {
+            throw new IllegalArgumentException(
+                    "The label selector '" + selector + "' has an invalid requirement '" + requirement + "'");
+        }
+
+        return labels -> labels.containsKey(requirement);
+    }
+
+    /**
+     * @return the given structured label selector in the kubectl syntax
+     */
+    public static String toString(LabelSelector selector) {
+        List<String> requirements = new ArrayList<>();
+        if (selector.getMatchLabels() != null) {
+            selector.getMatchLabels().forEach((key, value) -> requirements.add(key + "=" + value));
+        }
+
+        if (selector.getMatchExpressions() != null) {
+            for (LabelSelectorRequirement expression : selector.getMatchExpressions()) {
+                String values = expression.getValues() != null ? String.join(",", expression.getValues()) : "";
+                requirements.add(switch (expression.getOperator()) {
+                    case "In" -> expression.getKey() + " in (" + values + ")";
+                    case "NotIn" -> expression.getKey() + " notin (" + values + ")";
+                    case "Exists" -> expression.getKey();
+                    case "DoesNotExist" -> "!" + expression.getKey();
+                    default -> throw new IllegalArgumentException(
+                            "Unknown label selector operator '" + expression.getOperator() + "'");
+                });
+            }
+        }
+
+        return String.join(",", requirements);
+    }
+}
@@ -0,0 +1,14 @@
+package io.hawt.synapse.janus;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Identifies an attribute of an MBean, as given to tools that read many attributes.
+ *
+ * @param mbean     the JMX MBean ObjectName
+ * @param attribute the name of the attribute
+ */
+// Bound from the tool arguments by Jackson, which needs its accessors in a native image
+@RegisterForReflection
+public record MBeanAttribute(String mbean, String attribute) {
+}
@@ -0,0 +1,184 @@
+package io.hawt.synapse.janus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jolokia.json.JSONObject;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Caches the metadata of MBeans, i.e. their attributes, operations and
+ * descriptions, shared by all replicas of the same workload and image.
+ *
+ * Replicas created by the same controller from the same images register
+ * MBeans of the same classes, so the metadata is fetched from whichever
+ * replica is asked first and served to the rest from the one copy. Pods
+ * without a controller or known images share nothing.
+ *
+ * The metadata is kept for each token, as the agent may describe an MBean
+ * differently to each caller, or to some not at all.
+ *
+ * Entries older than the revalidation period are still served, while a
+ * single background fetch replaces them.
+ */
+@ApplicationScoped
+public class MBeanMetadataCache {
+
+    private static final Logger LOG = Logger.getLogger(MBeanMetadataCache.class);
+
+    /**
+     * @param workload the identity of the pods sharing the metadata
+     * @param caller   the hash of the token the metadata is fetched with
+     * @param mbean    the ObjectName of the MBean
+     */
+    record Key(String workload, String caller, String mbean) {
+    }
+
+    private record Entry(JSONObject metadata, long fetchedAt, AtomicBoolean revalidating) {
+
+        Entry(JSONObject metadata) {
+            this(metadata, System.currentTimeMillis(), new AtomicBoolean());
+        }
+    }
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "janus.metadata-cache.maximum-size", defaultValue = "10000")
+    long maximumSize;
+
+    @ConfigProperty(name = "janus.metadata-cache.revalidate-after", defaultValue = "10m")
+    Duration revalidateAfter;
+
+    private Cache<Key, Entry> entries;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, entries, "mbean-metadata");
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
+        JanusMetrics.removeCacheMeters(registry, "mbean-metadata");
+    }
+
+    /**
+     * Returns the metadata of an MBean of the given pod, fetching it with the
+     * given service only if no replica of the pod has had it fetched with the
+     * same token.
+     *
+     * @param pod       the pod hosting the MBean
+     * @param mbean     the ObjectName of the MBean
+     * @param authToken the token of the service
+     * @param service   the jolokia service of the pod
+     * @return the MBean's metadata as given by a jolokia list request
+     */
+    public JSONObject metadata(Pod pod, String mbean, String authToken, JolokiaService service) throws Exception {
+        Key key = new Key(workloadKey(pod), AuthenticationCache.hash(authToken), mbean);
+        Entry entry;
+        try {
+            // Concurrent first requests, e.g. across the replicas of a workload, share the one fetch
+            entry = entries.get(key, k -> {
+                try {
+                    return new Entry(service.mbeanInfo(mbean));
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+        } catch (CompletionException ex) {
+            throw (Exception) ex.getCause();
+        }
+
+        if (System.currentTimeMillis() - entry.fetchedAt() > revalidateAfter.toMillis()
+                && entry.revalidating().compareAndSet(false, true)) {
+            executor.execute(() -> revalidate(key, service));
+        }
+        return entry.metadata();
+    }
+
+    /**
+     * @return the metadata of an MBean of the given pod if a replica of the pod
+     *         has had it fetched with the given token, without fetching it otherwise
+     */
+    public Optional<JSONObject> cached(Pod pod, String mbean, String authToken) {
+        Entry entry = entries.getIfPresent(new Key(workloadKey(pod), AuthenticationCache.hash(authToken), mbean));
+        return entry != null ? Optional.of(entry.metadata()) : Optional.empty();
+    }
+
+    private void revalidate(Key key, JolokiaService service) {
+        try {
+            entries.put(key, new Entry(service.mbeanInfo(key.mbean())));
+            LOG.debugf("Revalidated the metadata of %s for %s", key.mbean(), key.workload());
+        } catch (Exception ex) {
+            LOG.debugf(ex, "Failed to revalidate the metadata of %s for %s", key.mbean(), key.workload());
+            entries.invalidate(key);
+        }
+    }
+
+    /**
+     * @return the number of metadata requests answered from the cache
+     */
+    public CacheStats stats() {
+        return entries.stats();
+    }
+
+    /**
+     * Identifies the pods that share MBean metadata: those with the same
+     * controlling owner running the same image digests. Pods without either
+     * are identified by their own uid.
+     */
+    static String workloadKey(Pod pod) {
+        ObjectMeta metadata = pod.getMetadata();
+        String owner = null;
+        if (metadata.getOwnerReferences() != null) {
+            owner = metadata.getOwnerReferences().stream()
+                    .filter(reference -> Boolean.TRUE.equals(reference.getController()))
+                    .map(OwnerReference::getUid)
+                    .filter(Objects::nonNull)
+                    .findFirst().orElse(null);
+        }
+
+        List<String> images = List.of();
+        if (pod.getStatus() != null && pod.getStatus().getContainerStatuses() != null) {
+            images = pod.getStatus().getContainerStatuses().stream()
+                    .map(ContainerStatus::getImageID)
+                    .filter(imageId -> imageId != null && !imageId.isEmpty())
+                    .sorted()
+                    .toList();
+        }
+
+        if (owner == null || images.isEmpty()) {
+            return metadata.getNamespace() + "/" + (metadata.getUid() != null ? metadata.getUid() : metadata.getName());
+        }
+        return owner + "@" + String.join(",", images);
+    }
+}
@@ -0,0 +1,130 @@
+package io.hawt.synapse.janus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+
+/**
+ * Pages through the sorted names of the MBeans of a pod, optionally only those
+ * matching an ObjectName pattern, so that a large inventory is returned in
+ * bounded pages rather than in one response.
+ *
+ * The cursor of a page is the last name it holds, encoded so that clients
+ * treat it as opaque. The next page starts after that name, so MBeans that
+ * are registered or unregistered between the pages neither shift nor repeat
+ * the names that follow.
+ *
+ * A pattern whose domain has no wildcards only looks at the names of that
+ * domain, which are contiguous in the sorted names.
+ */
+public final class MBeanPage {
+
+    private MBeanPage() {
+    }
+
+    /**
+     * @param names    the ObjectNames of the MBeans, in order
+     * @param pattern  an ObjectName pattern, or a domain, the MBeans must match, or null for all of them
+     * @param cursor   the cursor of the previous page, or null for the first page
+     * @param pageSize the most names to return
+     * @return the names of the page, with the cursor of the next page if there are more
+     * @throws IllegalArgumentException if the pattern or the cursor is not valid
+     */
+    public static JSONObject page(List<String> names, String pattern, String cursor, int pageSize) {
+        ObjectName filter = filter(pattern);
+
+        int from = 0;
+        int to = names.size();
+        if (filter != null && !filter.isDomainPattern()) {
+            // Names of the domain sort between 'domain:' and 'domain;'
+            from = position(names, filter.getDomain() + ":");
+            to = position(names, filter.getDomain() + ";");
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            from = Math.max(from, after(names, decode(cursor)));
+        }
+
+        JSONArray mbeans = new JSONArray();
+        boolean more = false;
+        for (int i = from; i < to; i++) {
+            String name = names.get(i);
+            if (!matches(filter, name)) {
+                continue;
+            }
+            if (mbeans.size() == pageSize) {
+                more = true;
+                break;
+            }
+            mbeans.add(name);
+        }
+
+        JSONObject page = new JSONObject();
+        page.put("mbeans", mbeans);
+        if (more) {
+            page.put("nextCursor", encode((String) mbeans.get(mbeans.size() - 1)));
+        }
+        return page;
+    }
+
+    private static ObjectName filter(String pattern) {
+        if (pattern == null || pattern.isBlank()) {
+            return null;
+        }
+
+        // A bare domain lists all the MBeans of the domain
+        String name = pattern.indexOf(':') < 0 ? pattern + ":*" : pattern;
+        try {
+            return ObjectName.getInstance(name);
+        } catch (MalformedObjectNameException ex) {
+            throw new IllegalArgumentException(
+                    "The pattern '" + pattern + "' is not a valid ObjectName pattern: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static boolean matches(ObjectName filter, String name) {
+        if (filter == null) {
+            return true;
+        }
+
+        try {
+            return filter.apply(ObjectName.getInstance(name));
+        } catch (MalformedObjectNameException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the index of the given name, or of the first name after it if it is absent
+     */
+    private static int position(List<String> names, String name) {
+        int index = Collections.binarySearch(names, name);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return the index of the first name after the given name
+     */
+    private static int after(List<String> names, String name) {
+        int index = Collections.binarySearch(names, name);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    static String encode(String name) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("The cursor '" + cursor + "' is not one returned by a previous page", ex);
+        }
+    }
+}
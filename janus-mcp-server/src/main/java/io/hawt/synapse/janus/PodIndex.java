@@ -0,0 +1,499 @@
+package io.hawt.synapse.janus;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.fabric8.kubernetes.api.model.LabelSelector;
+import io.fabric8.kubernetes.api.model.Namespace;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * A local index of pods maintained by shared informers, so that resolving the
+ * jolokia endpoint of a pod does not cost a round trip to the Kubernetes API
+ * server on every tool call.
+ *
+ * The jolokia url of each pod is derived once, when its add or update event
+ * arrives, and the entry is dropped when the pod is deleted. A restarted pod
+ * arrives as an update with its new ip address so its url is re-derived.
+ *
+ * The pods that expose a jolokia port are also held in order of their
+ * namespace and name, so that they can be listed a page at a time without
+ * going through the pods that do not.
+ *
+ * Pods in namespaces that are not watched, or that the informers have not yet
+ * seen, fall back to a direct fetch from the API server.
+ *
+ * If the namespaces are sharded between replicas, only the namespaces of this
+ * replica's shard are watched, each by an informer of its own, and those that
+ * move to another replica are dropped together with their endpoints. The
+ * namespaces to shard are the configured ones or else all those of the cluster,
+ * as seen by an informer of namespaces. The pods of all namespaces are then
+ * those of this replica's shard only, each replica listing its own.
+ */
+@ApplicationScoped
+public class PodIndex {
+
+    private static final Logger LOG = Logger.getLogger(PodIndex.class);
+
+    /**
+     * An indexed pod together with its pre-computed jolokia url.
+     *
+     * @param pod        the pod as last seen by the informer
+     * @param jolokiaUrl the url of the pod's jolokia port, or null if it has none
+     */
+    public record Entry(Pod pod, URL jolokiaUrl) {
+    }
+
+    @Inject
+    KubernetesClient k8sClient;
+
+    @Inject
+    JolokiaConnection jolokiaConnection;
+
+    @Inject
+    JolokiaServiceFactory jolokiaServiceFactory;
+
+    @Inject
+    ShardCoordinator shards;
+
+    @ConfigProperty(name = "janus.pod-index.enabled", defaultValue = "true")
+    boolean enabled;
+
+    /**
+     * The namespaces to watch. If absent then pods in all namespaces are indexed.
+     */
+    @ConfigProperty(name = "janus.pod-index.namespaces")
+    Optional<List<String>> namespaces;
+
+    /**
+     * Indexed pods, by namespace then pod name.
+     */
+    private final Map<String, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Indexed pods that expose a jolokia port, by namespace/name.
+     */
+    private final NavigableMap<String, Entry> jolokiaPods = new ConcurrentSkipListMap<>();
+
+    /**
+     * The informers of pods, by namespace or by {@link #ALL_NAMESPACES} for the one watching all of them.
+     */
+    private final Map<String, SharedIndexInformer<Pod>> informers = new ConcurrentHashMap<>();
+
+    private static final String ALL_NAMESPACES = "";
+
+    /**
+     * The informer of the namespaces to shard, if they are sharded and not configured.
+     */
+    private SharedIndexInformer<Namespace> namespaceInformer;
+
+    private ResourceEventHandler<Pod> handler;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            LOG.info("The pod index is disabled so pods will be fetched from the API server on each request");
+            return;
+        }
+
+        handler = new ResourceEventHandler<>() {
+            @Override
+            public void onAdd(Pod pod) {
+                index(pod);
+            }
+
+            @Override
+            public void onUpdate(Pod oldPod, Pod newPod) {
+                index(newPod);
+            }
+
+            @Override
+            public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+                LOG.debugf("Removing pod '%s' from the pod index", pod.getMetadata().getName());
+                jolokiaPods.remove(key(pod.getMetadata().getNamespace(), pod.getMetadata().getName()));
+                Map<String, Entry> namespaceEntries = entries.get(pod.getMetadata().getNamespace());
+                if (namespaceEntries != null) {
+                    Entry removed = namespaceEntries.remove(pod.getMetadata().getName());
+                    if (removed != null && removed.jolokiaUrl() != null) {
+                        jolokiaServiceFactory.invalidate(removed.jolokiaUrl().toString());
+                    }
+                }
+            }
+        };
+
+        if (shards.isEnabled()) {
+            if (namespaces.isEmpty() || namespaces.get().isEmpty()) {
+                namespaceInformer = k8sClient.namespaces().runnableInformer(0);
+                namespaceInformer.addEventHandler(new ResourceEventHandler<>() {
+                    @Override
+                    public void onAdd(Namespace namespace) {
+                        rebalance();
+                    }
+
+                    @Override
+                    public void onUpdate(Namespace oldNamespace, Namespace newNamespace) {
+                    }
+
+                    @Override
+                    public void onDelete(Namespace namespace, boolean deletedFinalStateUnknown) {
+                        rebalance();
+                    }
+                });
+                namespaceInformer.start();
+            }
+            shards.onRebalance(this::rebalance);
+            rebalance();
+        } else if (namespaces.isEmpty() || namespaces.get().isEmpty()) {
+            watch(ALL_NAMESPACES);
+        } else {
+            namespaces.get().forEach(this::watch);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (namespaceInformer != null) {
+            namespaceInformer.close();
+        }
+        informers.values().forEach(SharedIndexInformer::close);
+        informers.clear();
+        entries.clear();
+        jolokiaPods.clear();
+    }
+
+    private void watch(String namespace) {
+        SharedIndexInformer<Pod> informer;
+        if (ALL_NAMESPACES.equals(namespace)) {
+            LOG.info("Starting the pod index for all namespaces");
+            informer = k8sClient.pods().inAnyNamespace().runnableInformer(0);
+        } else {
+            LOG.infof("Starting the pod index for namespace '%s'", namespace);
+            informer = k8sClient.pods().inNamespace(namespace).runnableInformer(0);
+        }
+
+        informers.put(namespace, informer);
+        informer.addEventHandler(handler);
+        informer.start();
+    }
+
+    /**
+     * Watches the namespaces of this replica's shard, and stops watching and
+     * drops the pods of those that have moved to another replica.
+     */
+    private synchronized void rebalance() {
+        List<String> candidates = namespaces.isPresent() && !namespaces.get().isEmpty() ? namespaces.get()
+                : namespaceInformer.getStore().list().stream().map(namespace -> namespace.getMetadata().getName())
+                        .toList();
+        Set<String> owned = candidates.stream().filter(shards::owns).collect(Collectors.toSet());
+
+        for (String namespace : List.copyOf(informers.keySet())) {
+            if (!owned.contains(namespace)) {
+                LOG.infof("Stopping the pod index for namespace '%s' of another replica", namespace);
+                informers.remove(namespace).close();
+                drop(namespace);
+            }
+        }
+        for (String namespace : owned) {
+            if (!informers.containsKey(namespace)) {
+                watch(namespace);
+            }
+        }
+    }
+
+    /**
+     * Drops the pods of a namespace that is no longer watched, releasing their endpoints.
+     */
+    private void drop(String namespace) {
+        Map<String, Entry> namespaceEntries = entries.remove(namespace);
+        if (namespaceEntries == null) {
+            return;
+        }
+
+        for (Entry entry : namespaceEntries.values()) {
+            jolokiaPods.remove(key(namespace, entry.pod().getMetadata().getName()));
+            if (entry.jolokiaUrl() != null) {
+                jolokiaServiceFactory.invalidate(entry.jolokiaUrl().toString());
+            }
+        }
+    }
+
+    /**
+     * @return the key of the given pod in the order of the pods, its namespace and name
+     */
+    public static String key(String namespace, String podName) {
+        return namespace + "/" + podName;
+    }
+
+    private Entry get(String namespace, String podName) {
+        Map<String, Entry> namespaceEntries = entries.get(namespace);
+        return namespaceEntries != null ? namespaceEntries.get(podName) : null;
+    }
+
+    /**
+     * @return the jolokia url of the given pod, or null if it has none or no ip address yet
+     */
+    private URL jolokiaUrl(Pod pod) {
+        String podIp = pod.getStatus() != null ? pod.getStatus().getPodIP() : null;
+        if (podIp == null || podIp.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return jolokiaConnection.connectionURL(pod);
+        } catch (Exception ex) {
+            LOG.debugf(ex, "Pod '%s' produced an error while deriving the url to the jolokia service",
+                    pod.getMetadata().getName());
+            return null;
+        }
+    }
+
+    private void index(Pod pod) {
+        // A late event of an informer stopped by a rebalance is of a namespace no longer watched
+        if (!informers.containsKey(ALL_NAMESPACES) && !informers.containsKey(pod.getMetadata().getNamespace())) {
+            return;
+        }
+
+        URL jolokiaUrl = jolokiaUrl(pod);
+        Entry entry = new Entry(pod, jolokiaUrl);
+
+        Entry previous = entries.computeIfAbsent(pod.getMetadata().getNamespace(), namespace -> new ConcurrentHashMap<>())
+                .put(pod.getMetadata().getName(), entry);
+
+        String key = key(pod.getMetadata().getNamespace(), pod.getMetadata().getName());
+        if (jolokiaConnection.hasJolokiaPort(pod)) {
+            jolokiaPods.put(key, entry);
+        } else {
+            jolokiaPods.remove(key);
+        }
+
+        // A pod that has moved to a new address leaves its old endpoint behind
+        if (previous != null && previous.jolokiaUrl() != null && (jolokiaUrl == null
+                || !previous.jolokiaUrl().toString().equals(jolokiaUrl.toString()))) {
+            jolokiaServiceFactory.invalidate(previous.jolokiaUrl().toString());
+        }
+    }
+
+    /**
+     * @return the indexed entry for the given pod, if the informers have seen it
+     */
+    public Optional<Entry> entry(String namespace, String podName) {
+        return Optional.ofNullable(get(namespace, podName));
+    }
+
+    /**
+     * @return the number of pods currently held in the index
+     */
+    public int size() {
+        return entries.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * If the namespaces are sharded, the pods of all namespaces are those of
+     * this replica's shard, served from the index once the informers of all
+     * its namespaces have synced.
+     *
+     * @param namespace the namespace of the pods, or null for the pods of all namespaces
+     * @return true if pods of the given namespace are served from the index
+     */
+    public boolean isIndexed(String namespace) {
+        SharedIndexInformer<Pod> informer = informers.get(ALL_NAMESPACES);
+        if (informer == null && namespace == null && enabled && shards.isEnabled()) {
+            // Until the namespaces are known, those of the shard are not all watched yet
+            return (namespaceInformer == null || namespaceInformer.hasSynced())
+                    && informers.values().stream().allMatch(SharedIndexInformer::hasSynced);
+        }
+        if (informer == null && namespace != null) {
+            informer = informers.get(namespace);
+        }
+        return informer != null && informer.hasSynced();
+    }
+
+    /**
+     * Lists the pods of a namespace that match the given label selector, from
+     * the index if the namespace is indexed and from the API server otherwise.
+     *
+     * @param namespace     the namespace of the pods
+     * @param labelSelector a label selector in the kubectl syntax, or null for all pods
+     * @return the matching pods
+     * @throws IllegalArgumentException if the label selector cannot be parsed
+     */
+    public List<Pod> pods(String namespace, String labelSelector) {
+        if (isIndexed(namespace)) {
+            Predicate<Map<String, String>> selector = LabelSelectors.parse(labelSelector);
+            Map<String, Entry> namespaceEntries = entries.getOrDefault(namespace, Map.of());
+            return namespaceEntries.values().stream()
+                    .map(Entry::pod)
+                    .filter(pod -> selector.test(pod.getMetadata().getLabels()))
+                    .toList();
+        }
+
+        LOG.debugf("Listing the pods in namespace '%s' matching '%s' in cluster", namespace, labelSelector);
+        if (labelSelector == null || labelSelector.isBlank()) {
+            return k8sClient.pods().inNamespace(namespace).list().getItems();
+        }
+        return k8sClient.pods().inNamespace(namespace).withLabelSelector(labelSelector).list().getItems();
+    }
+
+    /**
+     * Lists the pods that expose a jolokia port, in the order of their
+     * {@link #key(String, String) keys}, from the index if it covers the
+     * namespace and from the API server otherwise.
+     *
+     * If the namespaces are sharded, the pods of all namespaces are those of
+     * this replica's shard, from the union of the informers of its namespaces
+     * once they have all synced and from the API server until then, and the
+     * pods of the namespaces of other replicas are left out.
+     *
+     * @param namespace     the namespace of the pods, or null for the pods of all namespaces
+     * @param labelSelector a label selector in the kubectl syntax, or null for all pods
+     * @param after         the key of the pod after which the pods start, or null to start at the first
+     * @param limit         the most pods to return
+     * @return the matching pods
+     * @throws IllegalArgumentException if the label selector cannot be parsed
+     */
+    public List<Entry> jolokiaPods(String namespace, String labelSelector, String after, int limit) {
+        Predicate<Map<String, String>> selector = LabelSelectors.parse(labelSelector);
+        NavigableMap<String, Entry> candidates = isIndexed(namespace) ? jolokiaPods
+                : fetchJolokiaPods(namespace, labelSelector);
+
+        // Keys of the namespace sort between 'namespace/' and 'namespace0'
+        String from = namespace != null ? key(namespace, "") : "";
+        String to = namespace != null ? namespace + "0" : null;
+        boolean inclusive = true;
+        if (after != null && after.compareTo(from) >= 0) {
+            from = after;
+            inclusive = false;
+        }
+        if (to != null && from.compareTo(to) >= 0) {
+            return List.of();
+        }
+
+        List<Entry> page = new ArrayList<>();
+        NavigableMap<String, Entry> range = to != null ? candidates.subMap(from, inclusive, to, false)
+                : candidates.tailMap(from, inclusive);
+        for (Entry entry : range.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (selector.test(entry.pod().getMetadata().getLabels())) {
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    private NavigableMap<String, Entry> fetchJolokiaPods(String namespace, String labelSelector) {
+        List<Pod> pods;
+        if (namespace != null) {
+            pods = pods(namespace, labelSelector);
+        } else {
+            LOG.debugf("Listing the pods in all namespaces matching '%s' in cluster", labelSelector);
+            pods = labelSelector == null || labelSelector.isBlank()
+                    ? k8sClient.pods().inAnyNamespace().list().getItems()
+                    : k8sClient.pods().inAnyNamespace().withLabelSelector(labelSelector).list().getItems();
+        }
+
+        NavigableMap<String, Entry> fetched = new TreeMap<>();
+        for (Pod pod : pods) {
+            // Without the index the pods of the namespaces of other replicas are fetched too
+            if (jolokiaConnection.hasJolokiaPort(pod) && shards.owns(pod.getMetadata().getNamespace())) {
+                fetched.put(key(pod.getMetadata().getNamespace(), pod.getMetadata().getName()),
+                        new Entry(pod, jolokiaUrl(pod)));
+            }
+        }
+        return fetched;
+    }
+
+    /**
+     * Lists the pods of a workload, as selected by the workload's own label selector.
+     *
+     * @param namespace the namespace of the workload
+     * @param workload  the workload given as kind/name, e.g. deployment/my-app
+     * @return the pods of the workload
+     * @throws IllegalArgumentException if the workload cannot be found
+     */
+    public List<Pod> workloadPods(String namespace, String workload) {
+        String[] parts = workload.split("/", 2);
+        if (parts.length != 2 || parts[1].isBlank()) {
+            throw new IllegalArgumentException("The workload '" + workload + "' is not of the form kind/name");
+        }
+
+        String name = parts[1];
+        LabelSelector selector = switch (parts[0].toLowerCase()) {
+            case "deployment", "deployments", "deploy" -> Optional
+                    .ofNullable(k8sClient.apps().deployments().inNamespace(namespace).withName(name).get())
+                    .map(deployment -> deployment.getSpec().getSelector()).orElse(null);
+            case "statefulset", "statefulsets", "sts" -> Optional
+                    .ofNullable(k8sClient.apps().statefulSets().inNamespace(namespace).withName(name).get())
+                    .map(statefulSet -> statefulSet.getSpec().getSelector()).orElse(null);
+            case "replicaset", "replicasets", "rs" -> Optional
+                    .ofNullable(k8sClient.apps().replicaSets().inNamespace(namespace).withName(name).get())
+                    .map(replicaSet -> replicaSet.getSpec().getSelector()).orElse(null);
+            case "daemonset", "daemonsets", "ds" -> Optional
+                    .ofNullable(k8sClient.apps().daemonSets().inNamespace(namespace).withName(name).get())
+                    .map(daemonSet -> daemonSet.getSpec().getSelector()).orElse(null);
+            default -> throw new IllegalArgumentException("The workload kind '" + parts[0]
+                    + "' is not one of deployment, statefulset, replicaset or daemonset");
+        };
+
+        if (selector == null) {
+            throw new IllegalArgumentException("Workload not found: " + workload + " in namespace: " + namespace);
+        }
+
+        return pods(namespace, LabelSelectors.toString(selector));
+    }
+
+    /**
+     * Looks up the given pod in the index, fetching it from the API server if
+     * it has not been indexed.
+     *
+     * @return the pod or null if it does not exist
+     */
+    public Pod pod(String namespace, String podName) {
+        Entry entry = get(namespace, podName);
+        if (entry != null) {
+            return entry.pod();
+        }
+
+        LOG.debugf("Fetching the pod with name '%s' from namespace '%s' in cluster", podName, namespace);
+        return k8sClient.pods().inNamespace(namespace).withName(podName).get();
+    }
+
+    /**
+     * Returns the jolokia url of the given pod, using the pre-computed url if
+     * the pod is the one held by the index.
+     *
+     * @see JolokiaConnection#connectionURL(Pod)
+     */
+    public URL connectionURL(Pod pod) throws Exception {
+        if (pod != null && pod.getMetadata() != null) {
+            Entry entry = get(pod.getMetadata().getNamespace(), pod.getMetadata().getName());
+            if (entry != null && entry.jolokiaUrl() != null && Objects.equals(
+                    entry.pod().getMetadata().getResourceVersion(), pod.getMetadata().getResourceVersion())) {
+                return entry.jolokiaUrl();
+            }
+        }
+
+        return jolokiaConnection.connectionURL(pod);
+    }
+}
@@ -0,0 +1,20 @@
+package io.hawt.synapse.janus;
+
+/**
+ * Processing parameters asking a jolokia agent to trim the value it returns
+ * before serializing it. Any parameter left null takes the agent's default.
+ *
+ * @param maxDepth          the maximum depth to which nested values are serialized
+ * @param maxCollectionSize the maximum number of elements serialized of any one collection
+ * @param maxObjects        the maximum number of objects serialized in all
+ * @param ignoreErrors      whether errors reading some of the attributes should be skipped
+ *                          rather than failing the whole read
+ */
+public record ReadOptions(Integer maxDepth, Integer maxCollectionSize, Integer maxObjects, Boolean ignoreErrors) {
+
+    public static final ReadOptions DEFAULTS = new ReadOptions(null, null, null, null);
+
+    public boolean isDefault() {
+        return maxDepth == null && maxCollectionSize == null && maxObjects == null && ignoreErrors == null;
+    }
+}
@@ -0,0 +1,310 @@
+package io.hawt.synapse.janus;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.fabric8.kubernetes.api.model.coordination.v1.Lease;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.NonDeletingOperation;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+
+/**
+ * Partitions the namespaces between the replicas of Janus, so that each
+ * replica watches and caches the pods of its own shard of the cluster rather
+ * than all replicas holding copies of the whole of it.
+ *
+ * Each replica holds a Lease of its own in the lease namespace, labelled with
+ * the shard group and annotated with the url at which it serves MCP, and
+ * renews it at the renew interval. The replicas whose leases have been renewed
+ * within their lease duration are the members of the group, and the
+ * namespaces are assigned to them by a {@link ShardRing}. A replica that stops
+ * renewing its lease drops out of the group once the lease has expired, and
+ * its namespaces move to the others.
+ *
+ * Listeners are told whenever the members change, so that the pod index can
+ * start and stop watching namespaces. Requests for the namespaces of another
+ * replica are answered with the url of that replica.
+ *
+ * Sharding is disabled by default, in which case the replica owns every namespace.
+ */
+@ApplicationScoped
+public class ShardCoordinator {
+
+    private static final Logger LOG = Logger.getLogger(ShardCoordinator.class);
+
+    /**
+     * The label of the leases, whose value is the shard group.
+     */
+    public static final String GROUP_LABEL = "janus.hawt.io/shard-group";
+
+    /**
+     * The annotation of a lease holding the url at which its replica serves MCP.
+     */
+    public static final String URL_ANNOTATION = "janus.hawt.io/url";
+
+    @Inject
+    KubernetesClient k8sClient;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "janus.shard.enabled", defaultValue = "false")
+    boolean enabled;
+
+    /**
+     * The name of the group of replicas sharing the namespaces, which prefixes the names of their leases.
+     */
+    @ConfigProperty(name = "janus.shard.group", defaultValue = "janus")
+    String group;
+
+    /**
+     * The namespace of the leases. If absent then the namespace of the kubernetes client, i.e. of the replica.
+     */
+    @ConfigProperty(name = "janus.shard.lease-namespace")
+    Optional<String> leaseNamespace;
+
+    /**
+     * The identity of the replica. If absent then its host name, i.e. the name of its pod.
+     */
+    @ConfigProperty(name = "janus.shard.identity")
+    Optional<String> identity;
+
+    /**
+     * The url at which the replica serves MCP. If absent then derived from its address and http port.
+     */
+    @ConfigProperty(name = "janus.shard.url")
+    Optional<String> url;
+
+    @ConfigProperty(name = "janus.shard.lease-duration", defaultValue = "15s")
+    Duration leaseDuration;
+
+    @ConfigProperty(name = "janus.shard.renew-interval", defaultValue = "5s")
+    Duration renewInterval;
+
+    @ConfigProperty(name = "janus.shard.virtual-nodes", defaultValue = "64")
+    int virtualNodes;
+
+    @ConfigProperty(name = "quarkus.http.port", defaultValue = "8080")
+    int httpPort;
+
+    @ConfigProperty(name = "quarkus.mcp.server.sse.root-path", defaultValue = "/mcp")
+    String mcpPath;
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private String self;
+
+    private String selfUrl;
+
+    private String namespace;
+
+    private volatile ShardRing ring;
+
+    /**
+     * The urls of the members, by identity.
+     */
+    private volatile Map<String, String> urls = Map.of();
+
+    private ScheduledExecutorService scheduler;
+
+    private Gauge membersGauge;
+
+    // Runs before the pod index starts so that it watches only the namespaces of this replica
+    void onStart(@Observes @Priority(Interceptor.Priority.APPLICATION) StartupEvent event) throws Exception {
+        if (!enabled) {
+            return;
+        }
+
+        self = identity.orElse(InetAddress.getLocalHost().getHostName());
+        selfUrl = url.orElse("http://" + InetAddress.getLocalHost().getHostAddress() + ":" + httpPort + mcpPath);
+        namespace = leaseNamespace.orElse(k8sClient.getNamespace());
+        ring = new ShardRing(List.of(self), virtualNodes);
+        urls = Map.of(self, selfUrl);
+
+        membersGauge = Gauge.builder("janus.shard.members", this, coordinator -> coordinator.ring.members().size())
+                .description("The number of replicas sharing the namespaces")
+                .register(registry);
+
+        renew();
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon()
+                .name("janus-shard").factory());
+        scheduler.scheduleAtFixedRate(this::scheduledRenew, renewInterval.toMillis(), renewInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        LOG.infof("Joined the shard group '%s' as '%s' [ lease namespace: %s, url: %s ]", group, self, namespace,
+                selfUrl);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdownNow();
+        registry.remove(membersGauge);
+        // Leaving at once hands the namespaces over without waiting for the lease to expire
+        try {
+            k8sClient.leases().inNamespace(namespace).withName(leaseName(self)).delete();
+        } catch (Exception ex) {
+            LOG.debugf(ex, "Failed to delete the lease of '%s' on leaving the shard group", self);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the identity of this replica, or null if sharding is disabled
+     */
+    public String identity() {
+        return self;
+    }
+
+    /**
+     * @return the identities of the replicas sharing the namespaces
+     */
+    public List<String> members() {
+        ShardRing current = ring;
+        return current != null ? List.copyOf(current.members()) : List.of();
+    }
+
+    /**
+     * @return the identity of the replica the namespace belongs to, or null if sharding is disabled
+     */
+    public String owner(String namespace) {
+        ShardRing current = ring;
+        return current != null ? current.owner(namespace) : null;
+    }
+
+    /**
+     * @return true if the namespace belongs to this replica, as every namespace does if sharding is disabled
+     */
+    public boolean owns(String namespace) {
+        String owner = owner(namespace);
+        return owner == null || owner.equals(self);
+    }
+
+    /**
+     * @return the url of the replica the namespace belongs to, or empty if it belongs to this replica
+     */
+    public Optional<String> ownerUrl(String namespace) {
+        if (owns(namespace)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(urls.get(owner(namespace)));
+    }
+
+    /**
+     * Adds a listener run whenever the namespaces move between the replicas.
+     */
+    public void onRebalance(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private String leaseName(String member) {
+        return group + "-" + member;
+    }
+
+    /**
+     * Renews on the schedule, which stops at the first exception it is thrown.
+     */
+    private void scheduledRenew() {
+        try {
+            renew();
+        } catch (Exception ex) {
+            // An exception would cancel the schedule
+            LOG.errorf(ex, "Failed to renew the membership of '%s' in the shard group '%s'", self, group);
+        }
+    }
+
+    /**
+     * Renews the lease of this replica then takes the members from the leases
+     * that have not expired, rebalancing the namespaces if they have changed.
+     * A lease without the url of its replica is skipped, as requests for its
+     * namespaces could not be sent to it.
+     */
+    synchronized void renew() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        Map<String, String> members = new HashMap<>();
+        try {
+            k8sClient.leases().inNamespace(namespace).resource(new LeaseBuilder()
+                    .withNewMetadata()
+                        .withName(leaseName(self))
+                        .addToLabels(GROUP_LABEL, group)
+                        .addToAnnotations(URL_ANNOTATION, selfUrl)
+                    .endMetadata()
+                    .withNewSpec()
+                        .withHolderIdentity(self)
+                        .withLeaseDurationSeconds((int) Math.max(1, leaseDuration.toSeconds()))
+                        .withRenewTime(now)
+                    .endSpec()
+                    .build()).createOr(NonDeletingOperation::update);
+
+            for (Lease lease : k8sClient.leases().inNamespace(namespace).withLabel(GROUP_LABEL, group).list()
+                    .getItems()) {
+                if (!isLive(lease, now)) {
+                    continue;
+                }
+                Map<String, String> annotations = lease.getMetadata().getAnnotations();
+                String memberUrl = annotations != null ? annotations.get(URL_ANNOTATION) : null;
+                if (memberUrl == null) {
+                    LOG.debugf("Skipping the lease '%s' of the shard group '%s' as it has no %s annotation",
+                            lease.getMetadata().getName(), group, URL_ANNOTATION);
+                    continue;
+                }
+                members.put(lease.getSpec().getHolderIdentity(), memberUrl);
+            }
+        } catch (Exception ex) {
+            // The current members are kept until the leases can be read again
+            LOG.warnf("Failed to renew the lease of '%s' in the shard group '%s': %s", self, group, ex.getMessage());
+            return;
+        }
+
+        // This replica is a member while it is running, even if it has failed to renew in time
+        members.putIfAbsent(self, selfUrl);
+        urls = Map.copyOf(members);
+        if (!members.keySet().equals(ring.members())) {
+            LOG.infof("The shard group '%s' has changed from %s to %s", group, ring.members(), members.keySet());
+            ring = new ShardRing(members.keySet(), virtualNodes);
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException ex) {
+                    LOG.errorf(ex, "Failed to rebalance the namespaces of '%s'", self);
+                }
+            }
+        }
+    }
+
+    private static boolean isLive(Lease lease, ZonedDateTime now) {
+        if (lease.getSpec() == null || lease.getSpec().getHolderIdentity() == null
+                || lease.getSpec().getRenewTime() == null) {
+            return false;
+        }
+
+        int duration = lease.getSpec().getLeaseDurationSeconds() != null ? lease.getSpec().getLeaseDurationSeconds() : 0;
+        return lease.getSpec().getRenewTime().plusSeconds(duration).isAfter(now);
+    }
+}
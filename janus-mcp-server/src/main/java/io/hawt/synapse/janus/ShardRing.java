@@ -0,0 +1,78 @@
+package io.hawt.synapse.janus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A consistent hash ring assigning namespaces to the replicas of a shard
+ * group.
+ *
+ * Each replica is placed on the ring at a number of virtual nodes, and a
+ * namespace belongs to the replica of the first node at or after its own hash.
+ * When a replica joins or leaves, only the namespaces between its nodes and
+ * their predecessors move, so the other replicas keep what they have cached.
+ */
+public final class ShardRing {
+
+    private final Set<String> members;
+
+    private final NavigableMap<Long, String> nodes = new TreeMap<>();
+
+    /**
+     * @param members      the identities of the replicas
+     * @param virtualNodes the number of nodes of each replica on the ring
+     */
+    public ShardRing(Collection<String> members, int virtualNodes) {
+        this.members = Set.copyOf(new TreeSet<>(members));
+        for (String member : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // Colliding nodes go to the lesser identity whatever the order of the members
+                nodes.merge(hash(member + "#" + i), member, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+
+    /**
+     * @return the identities of the replicas on the ring
+     */
+    public Set<String> members() {
+        return members;
+    }
+
+    /**
+     * @return the identity of the replica the namespace belongs to, or null if the ring is empty
+     */
+    public String owner(String namespace) {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+
+        Map.Entry<Long, String> node = nodes.ceilingEntry(hash(namespace));
+        return node != null ? node.getValue() : nodes.firstEntry().getValue();
+    }
+
+    /**
+     * The 64-bit FNV-1a hash of the UTF-8 bytes of the value, with the
+     * finalizer of MurmurHash3 to spread the short, similar names of
+     * namespaces and replicas around the ring.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
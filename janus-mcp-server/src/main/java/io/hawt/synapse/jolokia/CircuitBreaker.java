@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hawt.synapse.jolokia;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Guards the requests to one endpoint, so that a target application that has
+ * hung or is thrashing is not sent more requests that would each wait for the
+ * whole socket timeout.
+ *
+ * After a number of consecutive failures, i.e. requests that could not be
+ * sent, timed out or were answered with a server error, the breaker opens and
+ * requests fail at once with the state of the breaker. Once the open duration
+ * has passed a single request is let through as a probe: its success closes
+ * the breaker, its failure opens it again.
+ *
+ * The latencies of the successful reads, writes and versions set the timeout
+ * of each of them, a multiple of their p99 within the configured bounds, and
+ * the delay after which an idempotent one may be hedged with a second attempt,
+ * their p95. Neither applies until enough latencies have been seen. Lists,
+ * searches, notification, exec and bulk requests take as long as the MBean
+ * tree, the operation or the requests they carry, so they are always given
+ * the longest timeout, never hedged and their latencies are not kept.
+ *
+ * The breakers of all endpoints count the requests they reject in
+ * janus.jolokia.breaker.rejections and their openings in
+ * janus.jolokia.breaker.opened.
+ */
+class CircuitBreaker {
+
+    private static final Logger LOG = Logger.getLogger(CircuitBreaker.class);
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * How the timeout of a request is set.
+     */
+    enum Timing {
+        /**
+         * A read, write or version, timed out after the latencies of its like.
+         */
+        ADAPTIVE,
+        /**
+         * A list, search, notification, exec or bulk request, given the longest timeout.
+         */
+        FIXED
+    }
+
+    /**
+     * @param failureThreshold   the consecutive failures that open the breaker
+     * @param openDuration       how long the breaker stays open before a probe is let through
+     * @param window             the number of recent latencies kept
+     * @param minSamples         the latencies needed before the timeout and hedge delay follow them
+     * @param timeoutMultiplier  the multiple of the p99 latency after which a request times out
+     * @param minTimeout         the shortest timeout of a request
+     * @param maxTimeout         the longest timeout of a request, and the timeout until enough latencies are seen
+     * @param hedging            whether idempotent requests are hedged
+     * @param minHedgeDelay      the shortest delay before an idempotent request is hedged
+     */
+    record Settings(int failureThreshold, Duration openDuration, int window, int minSamples, double timeoutMultiplier,
+            Duration minTimeout, Duration maxTimeout, boolean hedging, Duration minHedgeDelay) {
+    }
+
+    /**
+     * Thrown in place of sending a request while the breaker is open. It is an
+     * {@link IOException} so that it passes through the http clients as a
+     * failure to connect.
+     */
+    static class OpenException extends IOException {
+
+        OpenException(String message) {
+            super(message);
+        }
+    }
+
+    private final String url;
+
+    private final Settings settings;
+
+    private final LatencyWindow latencies;
+
+    private final Counter rejections;
+
+    private final Counter opened;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+
+    private int failures;
+
+    private long openedAt;
+
+    private boolean probing;
+
+    CircuitBreaker(String url, Settings settings, MeterRegistry registry) {
+        this.url = url;
+        this.settings = settings;
+        this.latencies = new LatencyWindow(settings.window());
+        this.rejections = registry.counter("janus.jolokia.breaker.rejections");
+        this.opened = registry.counter("janus.jolokia.breaker.opened");
+    }
+
+    /**
+     * Admits a request, to be followed by a call of {@link #success(Timing, long)},
+     * {@link #failure()} or {@link #cancelled()} once it has completed.
+     *
+     * @throws OpenException if the breaker is open, or half-open with its probe in flight
+     */
+    synchronized void acquire() throws OpenException {
+        switch (state) {
+            case CLOSED:
+                return;
+            case OPEN:
+                long remaining = openedAt + settings.openDuration().toMillis() - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    state = State.HALF_OPEN;
+                    probing = true;
+                    LOG.debugf("Probing the jolokia endpoint %s", url);
+                    return;
+                }
+                rejections.increment();
+                throw new OpenException(String.format(
+                        "The circuit breaker of %s is open after %d consecutive failures, retrying in %d seconds",
+                        url, failures, Math.max(1, remaining / 1000)));
+            case HALF_OPEN:
+            default:
+                if (!probing) {
+                    probing = true;
+                    return;
+                }
+                rejections.increment();
+                throw new OpenException(String.format(
+                        "The circuit breaker of %s is half-open, awaiting the outcome of a probe request", url));
+        }
+    }
+
+    /**
+     * Records a request that was answered, closing the breaker.
+     */
+    void success(Timing timing, long latencyNanos) {
+        if (timing == Timing.ADAPTIVE) {
+            latencies.record(latencyNanos);
+        }
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                LOG.infof("The circuit breaker of %s is closed again", url);
+            }
+            state = State.CLOSED;
+            failures = 0;
+            probing = false;
+        }
+    }
+
+    /**
+     * Records a request that failed, opening the breaker if it was the probe
+     * or the failures have reached the threshold.
+     */
+    synchronized void failure() {
+        failures++;
+        probing = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= settings.failureThreshold())) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            opened.increment();
+            LOG.warnf("The circuit breaker of %s is open after %d consecutive failures", url, failures);
+        }
+    }
+
+    /**
+     * Records a request that was abandoned before it completed, such as the
+     * slower attempt of a hedged request, which neither closes nor opens the breaker.
+     */
+    synchronized void cancelled() {
+        probing = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return the time after which a request is abandoned as timed out
+     */
+    Duration timeout(Timing timing) {
+        if (timing == Timing.FIXED || latencies.count() < settings.minSamples()) {
+            return settings.maxTimeout();
+        }
+
+        long timeout = (long) (latencies.percentile(0.99) * settings.timeoutMultiplier());
+        long bounded = Math.max(settings.minTimeout().toNanos(), Math.min(timeout, settings.maxTimeout().toNanos()));
+        return Duration.ofNanos(bounded);
+    }
+
+    /**
+     * @return the delay after which an idempotent request is hedged with a
+     *         second attempt, or empty if it is not to be hedged
+     */
+    Optional<Duration> hedgeDelay(Timing timing) {
+        if (!settings.hedging() || timing == Timing.FIXED || latencies.count() < settings.minSamples()) {
+            return Optional.empty();
+        }
+
+        long delay = Math.max(latencies.percentile(0.95), settings.minHedgeDelay().toNanos());
+        return Optional.of(Duration.ofNanos(delay));
+    }
+}
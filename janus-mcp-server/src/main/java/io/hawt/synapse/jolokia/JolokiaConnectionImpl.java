@@ -4,19 +4,19 @@ import java.net.URI;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
 
 import org.jboss.logging.Logger;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jayway.jsonpath.JsonPath;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerPort;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.hawt.synapse.janus.JolokiaConnection;
-import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
 @Singleton
@@ -25,60 +25,70 @@ public class JolokiaConnectionImpl implements JolokiaConnection {
     protected static final String DEFAULT_JOLOKIA_PROTOCOL = "https";
     protected static final String DEFAULT_JOLOKIA_PATH = "/jolokia/";
 
-    @Inject
-    ObjectMapper objectMapper;
-
     private static final String JOLOKIA_PORT_NAME = "jolokia";
-    private static final String JOLOKIA_PORT_QUERY = "$.spec.containers[*].ports[?(@.name=='" + JOLOKIA_PORT_NAME
-            + "')]";
+
+    /**
+     * Maximum number of resolved endpoints remembered by pod uid.
+     */
+    static final long ENDPOINT_CACHE_SIZE = 10_000;
 
     private static final Logger LOG = Logger.getLogger(JolokiaConnection.class);
 
+    /**
+     * A resolved jolokia url, valid for as long as the pod's resourceVersion is unchanged.
+     *
+     * @param resourceVersion the resourceVersion of the pod the url was resolved from
+     * @param url             the jolokia url or null if the pod has no jolokia port
+     */
+    private record Endpoint(String resourceVersion, URL url) {
+    }
+
+    private final Cache<String, Endpoint> endpoints = Caffeine.newBuilder()
+            .maximumSize(ENDPOINT_CACHE_SIZE)
+            .build();
+
+    private static List<Container> podContainers(Pod pod) {
+        if (pod.getSpec() == null || pod.getSpec().getContainers() == null) {
+            return Collections.emptyList();
+        }
+
+        return pod.getSpec().getContainers();
+    }
+
     @Override
-    public boolean hasJolokiaPort(Pod pod) throws JsonProcessingException {
+    public boolean hasJolokiaPort(Pod pod) {
         if (pod == null) {
             return false;
         }
 
-        String podAsJson = objectMapper.writeValueAsString(pod);
-        List<Object> foundPorts = JsonPath.read(podAsJson, JOLOKIA_PORT_QUERY);
-        LOG.debugf("Found %d jolokia ports in pod '%s'", foundPorts.size(), pod.getFullResourceName());
-        return !foundPorts.isEmpty();
+        for (Container container : podContainers(pod)) {
+            if (jolokiaContainerPort(container) != null) {
+                return true;
+            }
+        }
+
+        LOG.debugf("Found no jolokia ports in pod '%s'", pod.getMetadata() != null ? pod.getMetadata().getName() : null);
+        return false;
     }
 
     private Integer jolokiaContainerPort(Container container) {
         List<ContainerPort> ports = container.getPorts();
-
-        LOG.debugf("jolokiaContainerPorts identified: %s", ports);
-
-        ContainerPort containerPort = ports.stream().filter(port -> JOLOKIA_PORT_NAME.equals(port.getName()))
-                .findFirst().orElse(null);
-        if (containerPort == null) {
-            LOG.debugf("No jolokia port in container %s", container.getName());
+        if (ports == null) {
             return null;
         }
-        LOG.debugf("jolokaiContainerPorts determined the container Port to be %s", containerPort);
-
-        return containerPort.getContainerPort();
-    }
 
-    private List<Container> containers(Pod pod) throws Exception {
-        if (pod == null) {
-            return Collections.emptyList();
-        }
-
-        if (!this.hasJolokiaPort(pod)) {
-            return Collections.emptyList();
+        for (ContainerPort port : ports) {
+            if (JOLOKIA_PORT_NAME.equals(port.getName())) {
+                return port.getContainerPort();
+            }
         }
 
-        List<Container> containers = pod.getSpec() != null ? pod.getSpec().getContainers() : Collections.emptyList();
-
-        return containers.stream().filter(container -> this.jolokiaContainerPort(container) != null)
-                .collect(Collectors.toList());
+        return null;
     }
 
     private String annotation(Pod pod, String name, String defaultValue) {
-        String value = pod.getMetadata().getAnnotations().get(name);
+        Map<String, String> annotations = pod.getMetadata().getAnnotations();
+        String value = annotations != null ? annotations.get(name) : null;
         if (value == null) {
             return defaultValue;
         }
@@ -92,25 +102,44 @@ public class JolokiaConnectionImpl implements JolokiaConnection {
             throw new Exception("Cannot derive connection url as pod is null");
         }
 
-        if (!hasJolokiaPort(pod)) {
-            return null;
+        // Pods are immutable for a given resourceVersion so the url resolved from it can be reused
+        ObjectMeta metadata = pod.getMetadata();
+        String uid = metadata != null ? metadata.getUid() : null;
+        String resourceVersion = metadata != null ? metadata.getResourceVersion() : null;
+        if (uid != null && resourceVersion != null) {
+            Endpoint endpoint = endpoints.getIfPresent(uid);
+            if (endpoint != null && Objects.equals(resourceVersion, endpoint.resourceVersion())) {
+                return endpoint.url();
+            }
+        }
+
+        URL jolokiaURL = resolveURL(pod);
+        if (uid != null && resourceVersion != null) {
+            endpoints.put(uid, new Endpoint(resourceVersion, jolokiaURL));
         }
 
-        String ip = pod.getStatus().getPodIP();
-        String protocol = this.annotation(pod, "hawt.io/protocol", DEFAULT_JOLOKIA_PROTOCOL);
-        String jolokiaPathSegment = this.annotation(pod, "hawt.io/jolokiaPath", DEFAULT_JOLOKIA_PATH);
-        List<Container> containers = this.containers(pod);
+        return jolokiaURL;
+    }
+
+    private URL resolveURL(Pod pod) throws Exception {
+        String ip = null;
+        String protocol = null;
+        String jolokiaPathSegment = null;
 
         URL jolokiaURL = null;
-        for (Container container : containers) {
+        for (Container container : podContainers(pod)) {
             Integer jolokiaPort = this.jolokiaContainerPort(container);
             if (jolokiaPort == null) {
-                // Should not happen since these are jolokia containers
-                LOG.infof("Could not find a jolokia port in container %s from pod %s", container.getName(),
-                        pod.getFullResourceName());
+                LOG.debugf("No jolokia port in container %s", container.getName());
                 continue;
             }
 
+            if (protocol == null) {
+                ip = pod.getStatus().getPodIP();
+                protocol = this.annotation(pod, "hawt.io/protocol", DEFAULT_JOLOKIA_PROTOCOL);
+                jolokiaPathSegment = this.annotation(pod, "hawt.io/jolokiaPath", DEFAULT_JOLOKIA_PATH);
+            }
+
             try {
                 // https://10.1.1.2/8778/jolokia/
                 jolokiaURL = new URI(protocol, null, ip, jolokiaPort, jolokiaPathSegment, null, null).toURL();
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hawt.synapse.jolokia;
+
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.hawt.synapse.janus.AuthenticationCache;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The state held for one jolokia endpoint.
+ *
+ * The circuit breaker is shared by every caller of the endpoint whatever their
+ * token. The names of the MBeans are kept for each token, as the agent may let
+ * each caller see different MBeans, and are released once the token has not
+ * listed them for the cache TTL.
+ */
+class JolokiaEndpoint {
+
+    /**
+     * The most tokens whose MBean names are kept at once.
+     */
+    static final long MAX_MBEAN_LISTS = 100;
+
+    private final String url;
+
+    private final MeterRegistry registry;
+
+    // The MBean names by hash of the token they were listed with
+    private final Cache<String, MBeanListCache> mbeanLists;
+
+    private final CircuitBreaker breaker;
+
+    JolokiaEndpoint(String url, CircuitBreaker.Settings settings, MeterRegistry registry) {
+        this.url = url;
+        this.registry = registry;
+        this.mbeanLists = Caffeine.newBuilder()
+                .maximumSize(MAX_MBEAN_LISTS)
+                .expireAfterAccess(Duration.ofMillis(MBeanListCache.CACHE_TTL_MILLIS))
+                .removalListener((String token, MBeanListCache list, RemovalCause cause) -> {
+                    if (list != null) {
+                        list.close();
+                    }
+                })
+                .build();
+        this.breaker = new CircuitBreaker(url, settings, registry);
+    }
+
+    String url() {
+        return url;
+    }
+
+    /**
+     * @return the names of the MBeans the agent lets the given token see
+     */
+    MBeanListCache mbeanListCache(String authToken) {
+        String key = authToken != null ? AuthenticationCache.hash(authToken) : "";
+        return mbeanLists.get(key, k -> new MBeanListCache(registry));
+    }
+
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    /**
+     * Releases what is held with the agent of the endpoint.
+     */
+    void close() {
+        mbeanLists.invalidateAll();
+    }
+}
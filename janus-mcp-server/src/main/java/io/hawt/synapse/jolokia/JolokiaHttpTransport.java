@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hawt.synapse.jolokia;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The HTTP transport shared by all jolokia clients.
+ *
+ * A single bounded pool of keep-alive connections serves every target
+ * application, rather than each client holding a pool of its own. TLS
+ * connections use the current {@link ProxyTLSContext} so a rotated proxy
+ * certificate is picked up by new connections.
+ */
+@ApplicationScoped
+public class JolokiaHttpTransport {
+
+    private static final Logger LOG = Logger.getLogger(JolokiaHttpTransport.class);
+
+    @Inject
+    ProxyTLSContext proxyTLSContext;
+
+    @ConfigProperty(name = "janus.jolokia.http.max-connections", defaultValue = "200")
+    int maxConnections;
+
+    @ConfigProperty(name = "janus.jolokia.http.max-connections-per-route", defaultValue = "10")
+    int maxConnectionsPerRoute;
+
+    @ConfigProperty(name = "janus.jolokia.http.connect-timeout", defaultValue = "5s")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "janus.jolokia.http.socket-timeout", defaultValue = "30s")
+    Duration socketTimeout;
+
+    @ConfigProperty(name = "janus.jolokia.http.keep-alive", defaultValue = "30s")
+    Duration keepAlive;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    private RequestConfig requestConfig;
+
+    @PostConstruct
+    void init() {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new ReloadingSSLSocketFactory())
+                .build();
+
+        connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setConnectionRequestTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) socketTimeout.toMillis())
+                .build();
+
+        long maxKeepAlive = keepAlive.toMillis();
+        httpClient = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long requested = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return requested > 0 ? Math.min(requested, maxKeepAlive) : maxKeepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(maxKeepAlive, TimeUnit.MILLISECONDS)
+                .build();
+
+        LOG.debugf("Created the shared jolokia http transport [ max-connections: %d, per-route: %d ]", maxConnections,
+                maxConnectionsPerRoute);
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            httpClient.close();
+        } catch (IOException ex) {
+            LOG.warn("Failed to close the shared jolokia http transport", ex);
+        }
+    }
+
+    /**
+     * @return the shared http client. It must not be closed by its users.
+     */
+    public CloseableHttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * @return the timeouts of the requests made with the shared http client
+     */
+    public RequestConfig requestConfig() {
+        return requestConfig;
+    }
+
+    /**
+     * @return the pool of connections behind the shared http client
+     */
+    public PoolingHttpClientConnectionManager connectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Socket factory that re-creates its delegate whenever the proxy SSL context is reloaded.
+     */
+    private class ReloadingSSLSocketFactory implements LayeredConnectionSocketFactory {
+
+        private SSLContext sslContext;
+
+        private SSLConnectionSocketFactory delegate;
+
+        private synchronized SSLConnectionSocketFactory delegate() throws IOException {
+            SSLContext current;
+            try {
+                current = proxyTLSContext.get();
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IOException("Failed to create the permissive SSL context", ex);
+            }
+
+            if (current != sslContext) {
+                // Do not verify the hostname
+                LOG.debug("Creating socket factory with no-op hostname verifier");
+                delegate = new SSLConnectionSocketFactory(current, NoopHostnameVerifier.INSTANCE);
+                sslContext = current;
+            }
+            return delegate;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return delegate().createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                InetSocketAddress localAddress, HttpContext context) throws IOException {
+            return delegate().connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+                throws IOException {
+            return delegate().createLayeredSocket(socket, target, port, context);
+        }
+    }
+}
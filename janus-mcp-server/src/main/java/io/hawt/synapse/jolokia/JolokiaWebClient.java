@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hawt.synapse.jolokia;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import org.jboss.logging.Logger;
+import org.jolokia.client.exception.J4pException;
+import org.jolokia.client.exception.J4pRemoteException;
+import org.jolokia.client.request.J4pQueryParameter;
+import org.jolokia.client.request.J4pRequest;
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+import org.jolokia.json.parser.JSONParser;
+
+import io.hawt.synapse.janus.JanusTracing;
+import io.hawt.synapse.janus.JolokiaRequest;
+import io.hawt.synapse.janus.JolokiaResult;
+import io.hawt.synapse.janus.JolokiaService;
+import io.hawt.synapse.janus.ReadOptions;
+import io.hawt.synapse.jolokia.CircuitBreaker.Timing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.unchecked.Unchecked;
+import io.vertx.mutiny.core.buffer.Buffer;
+import io.vertx.mutiny.ext.web.client.HttpRequest;
+import io.vertx.mutiny.ext.web.client.HttpResponse;
+
+/**
+ * A jolokia client that speaks the jolokia protocol over the shared Vert.x
+ * {@link JolokiaWebTransport}, so no thread is held while a target application
+ * is answering.
+ *
+ * The asynchronous methods complete on the event loop. The blocking methods
+ * await them and so must only be called from worker or virtual threads.
+ */
+class JolokiaWebClient implements JolokiaService {
+
+    private static final Logger LOG = Logger.getLogger(JolokiaWebClient.class);
+
+    private final JolokiaWebTransport transport;
+    private final JanusTracing tracing;
+    private final String jolokiaUrl;
+    private final String authToken;
+    private final boolean tls;
+    private final JolokiaEndpoint endpoint;
+    private final ReadCoalescer readCoalescer;
+
+    JolokiaWebClient(JolokiaWebTransport transport, JanusTracing tracing, JolokiaEndpoint endpoint,
+            ReadCoalescer readCoalescer, String authToken) {
+        LOG.tracef("Creating the Jolokia web client [ url: %s ]", endpoint.url());
+        this.transport = transport;
+        this.tracing = tracing;
+        this.endpoint = endpoint;
+        this.readCoalescer = readCoalescer;
+        this.jolokiaUrl = endpoint.url();
+        this.authToken = authToken;
+        this.tls = jolokiaUrl.startsWith("https:");
+    }
+
+    @Override
+    public Uni<Optional<JSONObject>> versionAsync() {
+        return send(request("version"), ReadOptions.DEFAULTS, Timing.ADAPTIVE, true)
+                .map(Unchecked.function(body -> Optional.of(checked((JSONObject) body))));
+    }
+
+    @Override
+    public Uni<Optional<Object>> readAsync(String mbean, String attr, ReadOptions options) {
+        return readAsync(mbean, attr, options, true);
+    }
+
+    @Override
+    public Uni<Optional<Object>> readUncachedAsync(String mbean, String attr, ReadOptions options) {
+        return readAsync(mbean, attr, options, false);
+    }
+
+    private Uni<Optional<Object>> readAsync(String mbean, String attr, ReadOptions options, boolean cacheable) {
+        ReadOptions given = options != null ? options : ReadOptions.DEFAULTS;
+        ReadCoalescer.Key key = new ReadCoalescer.Key(jolokiaUrl, authToken, List.of(JolokiaRequest.read(mbean, attr)),
+                given);
+        return readCoalescer.read(key, cacheable, () -> {
+            JSONObject request = request("read");
+            request.put("mbean", mbean);
+            request.put("attribute", attr);
+            return value(request, given, Timing.ADAPTIVE, true).map(Optional::ofNullable);
+        });
+    }
+
+    @Override
+    public Uni<List<JolokiaResult>> bulkAsync(List<JolokiaRequest> requests) {
+        if (requests.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+
+        JSONArray payload = new JSONArray(requests.size());
+        boolean readOnly = true;
+        for (JolokiaRequest request : requests) {
+            readOnly &= request.type() == JolokiaRequest.Type.READ;
+            JSONObject json = request(request.type() == JolokiaRequest.Type.READ ? "read" : "exec");
+            json.put("mbean", request.mbean());
+            if (request.type() == JolokiaRequest.Type.READ) {
+                json.put("attribute", request.name());
+            } else {
+                json.put("operation", request.name());
+                json.put("arguments", new JSONArray(request.arguments()));
+            }
+            payload.add(json);
+        }
+
+        Uni<List<JolokiaResult>> bulk = send(payload, ReadOptions.DEFAULTS, Timing.FIXED, readOnly).map(Unchecked.function(body -> {
+            if (!(body instanceof JSONArray responses) || responses.size() != requests.size()) {
+                throw new J4pException("The bulk response from " + jolokiaUrl + " does not match its "
+                        + requests.size() + " requests");
+            }
+
+            List<JolokiaResult> results = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                JSONObject response = (JSONObject) responses.get(i);
+                if (status(response) == 200) {
+                    results.add(JolokiaResult.success(requests.get(i), response.get("value")));
+                } else {
+                    results.add(JolokiaResult.failure(requests.get(i), remoteError(response).getMessage()));
+                }
+            }
+            return results;
+        }));
+        if (!readOnly) {
+            return bulk;
+        }
+        ReadCoalescer.Key key = new ReadCoalescer.Key(jolokiaUrl, authToken, List.copyOf(requests), ReadOptions.DEFAULTS);
+        return readCoalescer.read(key, true, () -> bulk);
+    }
+
+    @Override
+    public Optional<JSONObject> version() throws Exception {
+        return await(versionAsync());
+    }
+
+    @Override
+    public List<String> listMBeans() throws Exception {
+        return endpoint.mbeanListCache(authToken)
+                .getMBeans(requests -> (JSONArray) await(send(requests, ReadOptions.DEFAULTS, Timing.FIXED, false)));
+    }
+
+    @Override
+    public JSONObject listOperations(String mbean) throws Exception {
+        return getFromMBean(mbean, "op");
+    }
+
+    @Override
+    public JSONObject listAttributes(String mbean) throws Exception {
+        return getFromMBean(mbean, "attr");
+    }
+
+    @Override
+    public JSONObject mbeanInfo(String mbean) throws Exception {
+        return (JSONObject) list(J4pRequest.escape(mbean).replaceFirst(":", "/"), ReadOptions.DEFAULTS);
+    }
+
+    private JSONObject getFromMBean(String mbean, String key) throws Exception {
+        JSONObject mbeanInfo = mbeanInfo(mbean);
+        return (JSONObject) mbeanInfo.getOrDefault(key, new JSONObject());
+    }
+
+    @Override
+    public Object list(String path, ReadOptions options) throws Exception {
+        JSONObject request = request("list");
+        if (path != null) {
+            request.put("path", path);
+        }
+        return await(value(request, options, Timing.FIXED, true));
+    }
+
+    @Override
+    public Optional<Object> read(String mbean, String attr) throws Exception {
+        return await(readAsync(mbean, attr, ReadOptions.DEFAULTS));
+    }
+
+    @Override
+    public Optional<Object> read(String mbean, String attr, ReadOptions options) throws Exception {
+        return await(readAsync(mbean, attr, options));
+    }
+
+    @Override
+    public Optional<Object> write(String mbean, String attr, Object value) throws Exception {
+        JSONObject request = request("write");
+        request.put("mbean", mbean);
+        request.put("attribute", attr);
+        request.put("value", value);
+        return await(value(request, ReadOptions.DEFAULTS, Timing.ADAPTIVE, false).map(Optional::ofNullable));
+    }
+
+    @Override
+    public Optional<Object> exec(String mbean, String op, Object... args) throws Exception {
+        JSONObject request = request("exec");
+        request.put("mbean", mbean);
+        request.put("operation", op);
+        request.put("arguments", new JSONArray(Arrays.asList(args)));
+        return await(value(request, ReadOptions.DEFAULTS, Timing.FIXED, false).map(Optional::ofNullable));
+    }
+
+    @Override
+    public List<JolokiaResult> bulk(List<JolokiaRequest> requests) throws Exception {
+        return await(bulkAsync(requests));
+    }
+
+    private static JSONObject request(String type) {
+        JSONObject request = new JSONObject();
+        request.put("type", type);
+        return request;
+    }
+
+    /**
+     * Posts the given request, or array of requests, and parses the response body.
+     * An idempotent request that has not been answered within the hedge delay
+     * of the endpoint is posted again, and whichever attempt is answered first
+     * is taken while the other is cancelled.
+     *
+     * @param timing     how the timeout of the request is set, and whether it may be hedged
+     * @param idempotent whether the request only reads, so that it may be sent twice
+     */
+    private Uni<Object> send(Object payload, ReadOptions options, Timing timing, boolean idempotent) {
+        Optional<Duration> hedgeDelay = idempotent ? endpoint.breaker().hedgeDelay(timing) : Optional.empty();
+        if (hedgeDelay.isEmpty()) {
+            return attempt(payload, options, timing);
+        }
+
+        Uni<Object> hedge = Uni.createFrom().voidItem()
+                .onItem().delayIt().by(hedgeDelay.get())
+                .onItem().transformToUni(ignored -> {
+                    LOG.debugf("Hedging a request to %s unanswered after %s", jolokiaUrl, hedgeDelay.get());
+                    return attempt(payload, options, timing);
+                })
+                // The first attempt alone decides the failure of the request
+                .onFailure().recoverWithUni(Uni.createFrom().nothing());
+        return Uni.combine().any().of(attempt(payload, options, timing), hedge);
+    }
+
+    /**
+     * Posts the given request, or array of requests, once it is admitted by the
+     * circuit breaker of the endpoint, and parses the response body. The request
+     * is traced by a client span, started once the returned uni is subscribed to,
+     * whose trace context is passed on to the agent.
+     */
+    private Uni<Object> attempt(Object payload, ReadOptions options, Timing timing) {
+        return Uni.createFrom().deferred(() -> {
+            CircuitBreaker breaker = endpoint.breaker();
+            HttpRequest<Buffer> request;
+            try {
+                breaker.acquire();
+                request = transport.webClient(tls).postAbs(jolokiaUrl)
+                        .putHeader("Authorization", "Bearer " + authToken)
+                        .putHeader("Content-Type", "application/json")
+                        .timeout(breaker.timeout(timing).toMillis());
+            } catch (Exception ex) {
+                return Uni.createFrom().failure(ex);
+            }
+
+            for (Map.Entry<J4pQueryParameter, String> param : JolokiaClientFactory.processingOptions(options).entrySet()) {
+                request.addQueryParam(param.getKey().getParam(), param.getValue());
+            }
+
+            Span span = tracing.startRequest("POST", jolokiaUrl, request.host(), request.port());
+            tracing.inject(Context.current().with(span), request::putHeader);
+            long start = System.nanoTime();
+            return request.sendBuffer(Buffer.buffer(payload.toString()))
+                    .onItem().invoke(response -> {
+                        JanusTracing.status(span, response.statusCode());
+                        if (response.statusCode() < 500) {
+                            breaker.success(timing, System.nanoTime() - start);
+                        } else {
+                            breaker.failure();
+                        }
+                    })
+                    .onFailure().invoke(failure -> breaker.failure())
+                    .onCancellation().invoke(breaker::cancelled)
+                    .onTermination().invoke((response, failure, cancelled) -> JanusTracing.end(span, failure))
+                    .map(Unchecked.function(this::parse));
+        });
+    }
+
+    private Object parse(HttpResponse<Buffer> response) throws Exception {
+        if (response.statusCode() != 200) {
+            throw new J4pException(String.format("HTTP error %d from %s: %s", response.statusCode(), jolokiaUrl,
+                    response.statusMessage()));
+        }
+        return new JSONParser().parse(response.bodyAsString());
+    }
+
+    private Uni<Object> value(JSONObject request, ReadOptions options, Timing timing, boolean idempotent) {
+        return send(request, options, timing, idempotent).map(Unchecked.function(body -> checked((JSONObject) body).get("value")));
+    }
+
+    static JSONObject checked(JSONObject response) throws J4pRemoteException {
+        if (status(response) != 200) {
+            throw remoteError(response);
+        }
+        return response;
+    }
+
+    private static int status(JSONObject response) {
+        return response.get("status") instanceof Number status ? status.intValue() : 0;
+    }
+
+    private static J4pRemoteException remoteError(JSONObject response) {
+        Object error = response.get("error");
+        return new J4pRemoteException(null, error != null ? error.toString() : "Unknown error",
+                (String) response.get("error_type"), status(response), (String) response.get("stacktrace"), null);
+    }
+
+    private <T> T await(Uni<T> uni) throws Exception {
+        try {
+            return uni.await().atMost(transport.requestTimeout());
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
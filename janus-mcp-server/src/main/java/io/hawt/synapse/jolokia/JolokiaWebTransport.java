@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hawt.synapse.jolokia;
+
+import java.time.Duration;
+
+import javax.net.ssl.SSLContext;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.core.tracing.TracingPolicy;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.ext.web.client.WebClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The non-blocking HTTP transport shared by all Vert.x jolokia clients.
+ *
+ * Requests are sent from the Vert.x event loop so waiting on a slow target
+ * application does not hold a thread. TLS connections present the proxy
+ * certificate and key of the {@link ProxyTLSContext}. When that context is
+ * reloaded a new TLS client is created and the previous one is closed once
+ * its in-flight requests have had time to complete.
+ */
+@ApplicationScoped
+public class JolokiaWebTransport {
+
+    private static final Logger LOG = Logger.getLogger(JolokiaWebTransport.class);
+
+    private record TLSClient(SSLContext sslContext, WebClient webClient) {
+    }
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    ProxyTLSContext proxyTLSContext;
+
+    @ConfigProperty(name = "janus.jolokia.http.max-connections-per-route", defaultValue = "10")
+    int maxConnectionsPerRoute;
+
+    @ConfigProperty(name = "janus.jolokia.http.connect-timeout", defaultValue = "5s")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "janus.jolokia.http.socket-timeout", defaultValue = "30s")
+    Duration socketTimeout;
+
+    @ConfigProperty(name = "janus.jolokia.http.keep-alive", defaultValue = "30s")
+    Duration keepAlive;
+
+    private WebClient plainClient;
+
+    private volatile TLSClient tlsClient;
+
+    @PostConstruct
+    void init() {
+        plainClient = WebClient.create(vertx, options());
+        LOG.debugf("Created the shared jolokia web client [ per-route: %d ]", maxConnectionsPerRoute);
+    }
+
+    @PreDestroy
+    void close() {
+        plainClient.close();
+        TLSClient current = tlsClient;
+        if (current != null) {
+            current.webClient().close();
+        }
+    }
+
+    /**
+     * @param tls whether the client is to connect over TLS
+     * @return the shared web client. It must not be closed by its users.
+     */
+    public WebClient webClient(boolean tls) throws Exception {
+        if (!tls) {
+            return plainClient;
+        }
+
+        SSLContext sslContext = proxyTLSContext.get();
+        TLSClient current = tlsClient;
+        if (current != null && current.sslContext() == sslContext) {
+            return current.webClient();
+        }
+
+        synchronized (this) {
+            current = tlsClient;
+            if (current != null && current.sslContext() == sslContext) {
+                return current.webClient();
+            }
+
+            if (current != null) {
+                LOG.info("The proxy SSL context has been reloaded so creating a new TLS web client");
+                WebClient previous = current.webClient();
+                vertx.setTimer(socketTimeout.toMillis(), id -> previous.close());
+            }
+
+            WebClientOptions options = options()
+                    .setSsl(true)
+                    // Target applications may present self-signed certificates
+                    .setTrustAll(true)
+                    .setVerifyHost(false)
+                    .setKeyCertOptions(new PemKeyCertOptions()
+                            .setCertPath(proxyTLSContext.certificatePath)
+                            .setKeyPath(proxyTLSContext.keyPath));
+            current = new TLSClient(sslContext, WebClient.create(vertx, options));
+            tlsClient = current;
+            return current.webClient();
+        }
+    }
+
+    /**
+     * @return the longest time a single request may take
+     */
+    public Duration requestTimeout() {
+        return connectTimeout.plus(socketTimeout);
+    }
+
+    Duration socketTimeout() {
+        return socketTimeout;
+    }
+
+    private WebClientOptions options() {
+        return new WebClientOptions()
+                .setMaxPoolSize(maxConnectionsPerRoute)
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setKeepAlive(true)
+                .setKeepAliveTimeout((int) keepAlive.toSeconds())
+                .setUserAgentEnabled(false)
+                // Requests are traced by the jolokia clients themselves
+                .setTracingPolicy(TracingPolicy.IGNORE);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hawt.synapse.jolokia;
+
+import java.util.Arrays;
+
+/**
+ * The latencies of the most recent successful requests to one endpoint, from
+ * which its percentiles are taken.
+ *
+ * The latencies are kept in a ring of primitive longs. The percentiles are
+ * computed from a sorted copy of the ring and reused until a number of new
+ * latencies have been recorded, so that each request does not sort the ring.
+ */
+class LatencyWindow {
+
+    /**
+     * The number of latencies recorded before the percentiles are computed again.
+     */
+    private static final int RECOMPUTE_EVERY = 8;
+
+    private final long[] nanos;
+
+    private int next;
+
+    private int count;
+
+    private int sinceSorted;
+
+    private long[] sorted = new long[0];
+
+    LatencyWindow(int size) {
+        nanos = new long[size];
+    }
+
+    synchronized void record(long latencyNanos) {
+        nanos[next] = latencyNanos;
+        next = (next + 1) % nanos.length;
+        count = Math.min(count + 1, nanos.length);
+        sinceSorted++;
+    }
+
+    /**
+     * @return the number of latencies held
+     */
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 1
+     * @return the nearest-rank percentile of the latencies held, or -1 if there are none
+     */
+    synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        if (sorted.length != count || sinceSorted >= RECOMPUTE_EVERY) {
+            sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            sinceSorted = 0;
+        }
+
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, Math.min(rank, sorted.length) - 1)];
+    }
+}
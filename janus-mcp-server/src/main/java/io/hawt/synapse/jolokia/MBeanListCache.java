@@ -17,26 +17,320 @@
 package io.hawt.synapse.jolokia;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.jboss.logging.Logger;
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The names of the MBeans registered with a jolokia agent, kept up to date
+ * incrementally.
+ *
+ * The names are fetched in full once, after subscribing in pull mode to the
+ * registration and unregistration notifications of the MBeanServerDelegate.
+ * Thereafter the pending notifications are pulled and applied, at most once
+ * per sync interval. Should the subscription be lost, or notifications be
+ * dropped by the agent, the names are fetched in full again. An agent that
+ * does not support notifications has its names fetched in full whenever they
+ * are older than the cache TTL.
+ *
+ * Each token has a list of its own, as the agent may let each caller see
+ * different MBeans, and concurrent callers with the same token share a
+ * single sync.
+ *
+ * The lists of all endpoints count their lookups in janus.mbean.list.requests,
+ * by whether they were a hit, a pull of notifications or a full refresh.
+ */
 class MBeanListCache {
+
+    private static final Logger LOG = Logger.getLogger(MBeanListCache.class);
+
     /**
-     * Cache Time-To-Live in milliseconds.
+     * Cache Time-To-Live in milliseconds, when the agent does not support notifications.
      */
     static final long CACHE_TTL_MILLIS = 5 * 60 * 1000; // 5 minutes
 
-    final List<String> mbeans;
-    final long timestamp;
+    /**
+     * The least time in milliseconds between pulls of pending notifications.
+     */
+    static final long SYNC_INTERVAL_MILLIS = 2 * 1000; // 2 seconds
+
+    static final String DELEGATE_MBEAN = "JMImplementation:type=MBeanServerDelegate";
+
+    static final String DEFAULT_NOTIFICATION_STORE = "jolokia:type=NotificationStore";
+
+    static final String REGISTERED = "JMX.mbean.registered";
+
+    static final String UNREGISTERED = "JMX.mbean.unregistered";
+
+    /**
+     * Sends a number of raw jolokia requests in one bulk request.
+     */
+    interface Requester {
+        /**
+         * @return the responses to the requests, in the order of the requests
+         */
+        JSONArray send(JSONArray requests) throws Exception;
+    }
+
+    private record Subscription(String client, String handle, String store) {
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private final Set<String> mbeans = new TreeSet<>();
+
+    private volatile Subscription subscription;
+
+    private volatile List<String> snapshot;
+
+    private volatile long syncedAt;
+
+    // The requester of the last sync, with which to unsubscribe
+    private volatile Requester lastRequester;
+
+    private final Counter hits;
+
+    private final Counter pulls;
+
+    private final Counter refreshes;
+
+    MBeanListCache(MeterRegistry registry) {
+        hits = registry.counter("janus.mbean.list.requests", "result", "hit");
+        pulls = registry.counter("janus.mbean.list.requests", "result", "pull");
+        refreshes = registry.counter("janus.mbean.list.requests", "result", "refresh");
+    }
+
+    /**
+     * @param requester sends any requests needed to sync, on behalf of the caller
+     * @return the names of the registered MBeans, syncing them with the agent if due
+     */
+    List<String> getMBeans(Requester requester) throws Exception {
+        if (isFresh()) {
+            hits.increment();
+            return snapshot;
+        }
+
+        lock.lock();
+        try {
+            // Another caller may have synced while this one waited
+            if (isFresh()) {
+                hits.increment();
+            } else {
+                lastRequester = requester;
+                sync(requester);
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isFresh() {
+        if (snapshot == null) {
+            return false;
+        }
 
-    MBeanListCache(List<String> mbeans) {
-        this.mbeans = mbeans;
-        this.timestamp = System.currentTimeMillis();
+        long age = System.currentTimeMillis() - syncedAt;
+        return age < (subscription != null ? SYNC_INTERVAL_MILLIS : CACHE_TTL_MILLIS);
+    }
+
+    /**
+     * Unsubscribes from the notifications, on a background thread as the agent
+     * may no longer be reachable.
+     */
+    void close() {
+        Subscription current = subscription;
+        Requester requester = lastRequester;
+        subscription = null;
+        if (current == null || requester == null) {
+            return;
+        }
+
+        Thread.ofVirtual().start(() -> unsubscribe(requester, current));
+    }
+
+    /**
+     * Unregisters the notification client, so that the agent stops queuing
+     * notifications for it.
+     */
+    private static void unsubscribe(Requester requester, Subscription subscription) {
+        JSONObject unregister = request("notification");
+        unregister.put("command", "unregister");
+        unregister.put("client", subscription.client());
+        try {
+            requester.send(array(unregister));
+            LOG.debugf("Unsubscribed from the MBean notifications as client %s", subscription.client());
+        } catch (Exception ex) {
+            LOG.debugf(ex, "Failed to unsubscribe client %s from the MBean notifications", subscription.client());
+        }
+    }
+
+    private void sync(Requester requester) throws Exception {
+        Subscription current = subscription;
+        if (current != null) {
+            try {
+                if (pull(requester, current)) {
+                    pulls.increment();
+                    syncedAt = System.currentTimeMillis();
+                    return;
+                }
+            } catch (Exception ex) {
+                LOG.debugf(ex, "Failed to pull the MBean notifications of client %s", current.client());
+            }
+            subscription = null;
+            unsubscribe(requester, current);
+        }
+
+        refreshes.increment();
+        refresh(requester);
+    }
+
+    /**
+     * Subscribes to the delegate notifications, if possible, then fetches all
+     * the MBean names. Subscribing first means no registration is missed.
+     * The subscription is only kept once the names have been fetched, as its
+     * notifications apply to them.
+     */
+    private void refresh(Requester requester) throws Exception {
+        Subscription fresh = null;
+        try {
+            fresh = subscribe(requester);
+        } catch (Exception ex) {
+            LOG.debugf(ex, "Jolokia notifications are unavailable so the MBean list will be refreshed every %d minutes",
+                    CACHE_TTL_MILLIS / 60_000);
+        }
+
+        JSONObject response;
+        try {
+            JSONObject search = request("search");
+            search.put("mbean", "*:*");
+            response = JolokiaWebClient.checked((JSONObject) requester.send(array(search)).get(0));
+        } catch (Exception ex) {
+            if (fresh != null) {
+                unsubscribe(requester, fresh);
+            }
+            // The names are fetched in full again by the next caller
+            syncedAt = 0;
+            throw ex;
+        }
+
+        mbeans.clear();
+        for (Object name : (List<?>) response.get("value")) {
+            mbeans.add(name.toString());
+        }
+        snapshot = List.copyOf(mbeans);
+        subscription = fresh;
+        syncedAt = System.currentTimeMillis();
+        LOG.debugf("Fetched the names of all %d MBeans", mbeans.size());
+    }
+
+    private Subscription subscribe(Requester requester) throws Exception {
+        JSONObject register = request("notification");
+        register.put("command", "register");
+        JSONObject registered = (JSONObject) JolokiaWebClient.checked((JSONObject) requester.send(array(register)).get(0))
+                .get("value");
+        String client = (String) registered.get("id");
+
+        String store = DEFAULT_NOTIFICATION_STORE;
+        if (registered.get("backend") instanceof Map<?, ?> backends && backends.get("pull") instanceof Map<?, ?> pull
+                && pull.get("store") instanceof String pullStore) {
+            store = pullStore;
+        }
+
+        JSONObject add = request("notification");
+        add.put("command", "add");
+        add.put("client", client);
+        add.put("mode", "pull");
+        add.put("mbean", DELEGATE_MBEAN);
+        add.put("filter", new JSONArray(List.of(REGISTERED, UNREGISTERED)));
+        Object handle = JolokiaWebClient.checked((JSONObject) requester.send(array(add)).get(0)).get("value");
+
+        LOG.debugf("Subscribed to the MBean notifications as client %s", client);
+        return new Subscription(client, String.valueOf(handle), store);
+    }
+
+    /**
+     * Pulls and applies the pending notifications, pinging the notification
+     * client in the same request to keep it alive.
+     *
+     * @return false if notifications have been dropped so the list must be fetched in full
+     */
+    private boolean pull(Requester requester, Subscription subscription) throws Exception {
+        JSONObject ping = request("notification");
+        ping.put("command", "ping");
+        ping.put("client", subscription.client());
+
+        JSONObject pull = request("exec");
+        pull.put("mbean", subscription.store());
+        pull.put("operation", "pull");
+        pull.put("arguments", new JSONArray(List.of(subscription.client(), subscription.handle())));
+
+        JSONArray responses = requester.send(array(ping, pull));
+        JolokiaWebClient.checked((JSONObject) responses.get(0));
+        JSONObject result = (JSONObject) JolokiaWebClient.checked((JSONObject) responses.get(1)).get("value");
+        if (result == null) {
+            return true;
+        }
+
+        if (result.get("dropped") instanceof Number dropped && dropped.longValue() > 0) {
+            LOG.debugf("%d MBean notifications were dropped so fetching the names of all MBeans", dropped.longValue());
+            return false;
+        }
+
+        boolean changed = false;
+        if (result.get("notifications") instanceof List<?> notifications) {
+            for (Object notification : notifications) {
+                if (notification instanceof Map<?, ?> fields) {
+                    String name = mbeanName(fields);
+                    if (name == null) {
+                        continue;
+                    }
+                    if (REGISTERED.equals(fields.get("type"))) {
+                        changed |= mbeans.add(name);
+                    } else if (UNREGISTERED.equals(fields.get("type"))) {
+                        changed |= mbeans.remove(name);
+                    }
+                }
+            }
+        }
+
+        if (changed) {
+            snapshot = List.copyOf(mbeans);
+        }
+        return true;
+    }
+
+    /**
+     * @return the name of the MBean a delegate notification is about, which
+     *         jolokia serializes either as a string or as an object
+     */
+    private static String mbeanName(Map<?, ?> notification) {
+        Object name = notification.get("mBeanName");
+        if (name == null) {
+            name = notification.get("MBeanName");
+        }
+        if (name instanceof Map<?, ?> objectName) {
+            name = objectName.get("objectName");
+        }
+        return name != null ? name.toString() : null;
     }
 
-    boolean isValid() {
-        return (System.currentTimeMillis() - timestamp) < CACHE_TTL_MILLIS;
+    private static JSONObject request(String type) {
+        JSONObject request = new JSONObject();
+        request.put("type", type);
+        return request;
     }
 
-    List<String> getMBeans() {
-        return mbeans;
+    private static JSONArray array(JSONObject... requests) {
+        return new JSONArray(List.of(requests));
     }
 }
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.hawt.synapse.jolokia;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.jboss.logging.Logger;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.hawt.synapse.janus.JolokiaRequest;
+import io.hawt.synapse.janus.ReadOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Shares the reads made of the jolokia agents between callers, so that the
+ * sessions looking at the same pods at the same moment do not each send the
+ * agent the same request.
+ *
+ * A read that is identical to one in flight, i.e. the same requests to the
+ * same endpoint with the same token and processing options, waits for the
+ * answer to that one rather than being sent. Once answered, a read may also
+ * be kept for a short time to the same effect, for as long as the TTL of the
+ * first rule whose ObjectName pattern matches its MBean, or the default TTL.
+ * A read of several MBeans is kept for the shortest of their TTLs. Failures
+ * are shared by the reads in flight but never kept.
+ *
+ * The token is part of what makes reads identical, so that no caller is
+ * answered with what the agent allowed another to read, as with the MBean
+ * names and metadata kept for each token.
+ *
+ * The reads count whether they were answered from the cache, by a read in
+ * flight, or by the agent in janus.jolokia.reads.
+ */
+class ReadCoalescer {
+
+    private static final Logger LOG = Logger.getLogger(ReadCoalescer.class);
+
+    /**
+     * @param url      the url of the endpoint
+     * @param token    the token the reads are made with
+     * @param requests the read requests
+     * @param options  the processing options of the reads
+     */
+    record Key(String url, String token, List<JolokiaRequest> requests, ReadOptions options) {
+    }
+
+    /**
+     * @param pattern the ObjectName pattern of the MBeans the TTL applies to
+     * @param ttl     how long a read of a matching MBean is kept
+     */
+    record Rule(ObjectName pattern, Duration ttl) {
+    }
+
+    private record Entry(Object value, long ttlNanos) {
+    }
+
+    private final List<Rule> rules;
+
+    private final Duration defaultTtl;
+
+    // Whether any read may be kept at all
+    private final boolean caching;
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Cache<Key, Entry> recent;
+
+    private final Counter cached;
+
+    private final Counter coalesced;
+
+    private final Counter fetched;
+
+    ReadCoalescer(List<Rule> rules, Duration defaultTtl, long maximumSize, MeterRegistry registry) {
+        this.rules = List.copyOf(rules);
+        this.defaultTtl = defaultTtl;
+        this.caching = defaultTtl.isPositive() || this.rules.stream().anyMatch(rule -> rule.ttl().isPositive());
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<Key, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.cached = registry.counter("janus.jolokia.reads", "result", "cached");
+        this.coalesced = registry.counter("janus.jolokia.reads", "result", "coalesced");
+        this.fetched = registry.counter("janus.jolokia.reads", "result", "fetched");
+    }
+
+    /**
+     * Parses rules given as ObjectName patterns each followed by an equals sign
+     * and a TTL, separated by semicolons, e.g.
+     * {@code java.lang:type=Memory=500ms;org.apache.camel:type=routes,*=250ms}.
+     *
+     * @throws IllegalArgumentException if a rule is not of that form
+     */
+    static List<Rule> parseRules(String rules) {
+        List<Rule> parsed = new ArrayList<>();
+        if (rules == null || rules.isBlank()) {
+            return parsed;
+        }
+
+        for (String rule : rules.split(";")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            // The pattern may itself hold equals signs, so the TTL follows the last of them
+            int separator = rule.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("The read cache rule '" + rule + "' is not of the form pattern=ttl");
+            }
+            try {
+                parsed.add(new Rule(ObjectName.getInstance(rule.substring(0, separator).trim()),
+                        DurationConverter.parseDuration(rule.substring(separator + 1).trim())));
+            } catch (MalformedObjectNameException ex) {
+                throw new IllegalArgumentException(
+                        "The read cache rule '" + rule + "' does not start with an ObjectName pattern", ex);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * @return how long a read of the given requests is kept, zero if it is not
+     */
+    Duration ttl(List<JolokiaRequest> requests) {
+        Duration shortest = null;
+        for (JolokiaRequest request : requests) {
+            Duration ttl = ttl(request.mbean());
+            if (shortest == null || ttl.compareTo(shortest) < 0) {
+                shortest = ttl;
+            }
+        }
+        return shortest != null ? shortest : Duration.ZERO;
+    }
+
+    private Duration ttl(String mbean) {
+        if (rules.isEmpty()) {
+            return defaultTtl;
+        }
+
+        ObjectName name;
+        try {
+            name = ObjectName.getInstance(mbean);
+        } catch (MalformedObjectNameException ex) {
+            return Duration.ZERO;
+        }
+        for (Rule rule : rules) {
+            if (rule.pattern().apply(name)) {
+                return rule.ttl();
+            }
+        }
+        return defaultTtl;
+    }
+
+    /**
+     * Reads with the given fetch unless the read is kept or in flight.
+     *
+     * @param key       the identity of the read
+     * @param cacheable whether the read may be answered from, and kept in, the cache
+     * @param fetch     sends the read to the agent
+     */
+    @SuppressWarnings("unchecked")
+    <T> Uni<T> read(Key key, boolean cacheable, Supplier<Uni<T>> fetch) {
+        return Uni.createFrom().deferred(() -> {
+            if (cacheable && caching) {
+                Entry entry = recent.getIfPresent(key);
+                if (entry != null) {
+                    cached.increment();
+                    return Uni.createFrom().item((T) entry.value());
+                }
+            }
+
+            CompletableFuture<Object> created = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                coalesced.increment();
+                // Each caller has its own copy so that cancelling it leaves the shared read alone
+                return Uni.createFrom().completionStage(existing.copy()).map(value -> (T) value);
+            }
+
+            fetched.increment();
+            // The read continues for the callers sharing it even if the first caller cancels
+            fetch.get().subscribe().with(
+                    value -> complete(key, cacheable, created, value),
+                    failure -> fail(key, created, failure));
+            return Uni.createFrom().completionStage(created.copy()).map(value -> (T) value);
+        });
+    }
+
+    /**
+     * As {@link #read(Key, boolean, Supplier)} but blocking, the fetch being
+     * made on the thread of the first caller.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T readBlocking(Key key, boolean cacheable, Callable<T> fetch) throws Exception {
+        if (cacheable && caching) {
+            Entry entry = recent.getIfPresent(key);
+            if (entry != null) {
+                cached.increment();
+                return (T) entry.value();
+            }
+        }
+
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return (T) existing.get();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+
+        fetched.increment();
+        T value;
+        try {
+            value = fetch.call();
+        } catch (Exception | Error ex) {
+            fail(key, created, ex);
+            throw ex;
+        }
+        complete(key, cacheable, created, value);
+        return value;
+    }
+
+    private void complete(Key key, boolean cacheable, CompletableFuture<Object> created, Object value) {
+        if (cacheable && caching && value != null) {
+            Duration ttl = ttl(key.requests());
+            if (ttl.isPositive()) {
+                // Kept before leaving the flight so that no read slips in between to fetch again
+                recent.put(key, new Entry(value, ttl.toNanos()));
+            }
+        }
+        inFlight.remove(key, created);
+        created.complete(value);
+    }
+
+    private void fail(Key key, CompletableFuture<Object> created, Throwable failure) {
+        LOG.tracef("A read shared by callers of %s failed: %s", key.url(), failure.getMessage());
+        inFlight.remove(key, created);
+        created.completeExceptionally(failure);
+    }
+}
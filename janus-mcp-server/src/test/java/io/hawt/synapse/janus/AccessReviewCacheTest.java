@@ -0,0 +1,229 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.naming.AuthenticationException;
+import javax.naming.NoPermissionException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.fabric8.kubernetes.api.model.authorization.v1.SubjectAccessReview;
+import io.fabric8.kubernetes.api.model.authorization.v1.SubjectAccessReviewBuilder;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import io.quarkiverse.mcp.server.test.McpAssured;
+import io.quarkiverse.mcp.server.test.McpAssured.McpStreamableTestClient;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.kubernetes.client.KubernetesServer;
+import io.quarkus.test.kubernetes.client.KubernetesTestServer;
+import io.quarkus.test.kubernetes.client.WithKubernetesTestServer;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+@WithKubernetesTestServer
+@TestProfile(AccessReviewCacheTest.AccessReviewProfile.class)
+public class AccessReviewCacheTest extends JanusTest {
+
+    private static final String FORBIDDEN_NAMESPACE = "forbidden";
+
+    public static class AccessReviewProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // The tests scrape the collected attributes themselves
+            return Map.of("janus.auth.access.enabled", "true", "janus.collector.interval", "1h");
+        }
+    }
+
+    @TestHTTPResource
+    private URI testUri;
+
+    @KubernetesTestServer
+    private KubernetesServer mockServer;
+
+    @Inject
+    private AccessReviewCache accessReviews;
+
+    @Inject
+    private AuthenticationCache authenticationCache;
+
+    @Inject
+    private AttributeCollector attributeCollector;
+
+    @InjectMock
+    HttpServerRequest mockRequest;
+
+    @ConfigProperty(name = "quarkus.mcp.server.sse.root-path")
+    private String mcpPath;
+
+    private final List<SubjectAccessReview> reviews = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        mockServer.getKubernetesMockServer().reset();
+        mockServer.getKubernetesMockServer().clearExpectations();
+        authenticationCache.invalidateAll();
+        accessReviews.invalidateAll();
+        reviews.clear();
+
+        expectTokenReviews(mockServer.getKubernetesMockServer(), BEARER_TOKEN::equals);
+
+        // Allow everything but the pods of the forbidden namespace
+        mockServer.expect()
+            .post()
+            .withPath("/apis/authorization.k8s.io/v1/subjectaccessreviews")
+            .andReply(201, request -> {
+                SubjectAccessReview review = Serialization.unmarshal(request.getBody().readUtf8(),
+                        SubjectAccessReview.class);
+                reviews.add(review);
+                boolean allowed = !FORBIDDEN_NAMESPACE.equals(review.getSpec().getResourceAttributes().getNamespace());
+                return new SubjectAccessReviewBuilder(review)
+                        .withNewStatus()
+                            .withAllowed(allowed)
+                            .withReason(allowed ? null : "no role binding")
+                        .endStatus()
+                        .build();
+            })
+            .always();
+    }
+
+    @Test
+    public void testAuthorize_cachesAllowed() {
+        long hits = accessReviews.hitCount();
+        long misses = accessReviews.missCount();
+
+        assertDoesNotThrow(() -> accessReviews.authorize(BEARER_TOKEN, NAMESPACE, AccessReviewCache.Access.PROXY));
+        assertDoesNotThrow(() -> accessReviews.authorize(BEARER_TOKEN, NAMESPACE, AccessReviewCache.Access.PROXY));
+
+        assertEquals(1, reviews.size());
+        assertEquals(misses + 1, accessReviews.missCount());
+        assertEquals(hits + 1, accessReviews.hitCount());
+
+        // The review asks for the user of the token
+        SubjectAccessReview review = reviews.get(0);
+        assertEquals(USER, review.getSpec().getUser());
+        assertEquals(List.of(USER_GROUP), review.getSpec().getGroups());
+        assertEquals(NAMESPACE, review.getSpec().getResourceAttributes().getNamespace());
+        assertEquals("get", review.getSpec().getResourceAttributes().getVerb());
+        assertEquals("pods", review.getSpec().getResourceAttributes().getResource());
+        assertEquals("proxy", review.getSpec().getResourceAttributes().getSubresource());
+    }
+
+    @Test
+    public void testAuthorize_cachesDenied() {
+        assertThrows(NoPermissionException.class,
+                () -> accessReviews.authorize(BEARER_TOKEN, FORBIDDEN_NAMESPACE, AccessReviewCache.Access.PROXY));
+        assertThrows(NoPermissionException.class,
+                () -> accessReviews.authorize(BEARER_TOKEN, FORBIDDEN_NAMESPACE, AccessReviewCache.Access.PROXY));
+
+        assertEquals(1, reviews.size());
+    }
+
+    @Test
+    public void testAuthorize_reviewsEachNamespaceAndAccess() {
+        assertDoesNotThrow(() -> accessReviews.authorize(BEARER_TOKEN, NAMESPACE, AccessReviewCache.Access.PROXY));
+        assertDoesNotThrow(() -> accessReviews.authorize(BEARER_TOKEN, NAMESPACE, AccessReviewCache.Access.LIST));
+        assertDoesNotThrow(() -> accessReviews.authorize(BEARER_TOKEN, "other", AccessReviewCache.Access.PROXY));
+        assertDoesNotThrow(() -> accessReviews.authorize(BEARER_TOKEN, null, AccessReviewCache.Access.LIST));
+
+        assertEquals(4, reviews.size());
+        assertEquals("list", reviews.get(1).getSpec().getResourceAttributes().getVerb());
+        assertEquals(null, reviews.get(1).getSpec().getResourceAttributes().getSubresource());
+        assertEquals("", reviews.get(3).getSpec().getResourceAttributes().getNamespace());
+    }
+
+    @Test
+    public void testAuthorize_unauthenticatedIsNotReviewed() {
+        assertThrows(AuthenticationException.class,
+                () -> accessReviews.authorize("bad-token", NAMESPACE, AccessReviewCache.Access.PROXY));
+
+        assertEquals(0, reviews.size());
+    }
+
+    @Test
+    public void testTool_deniedNamespace() {
+        McpAssured.baseUri = testUri;
+        Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+
+        McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+        mcpClient.when().toolsCall("version", Map.of("namespace", FORBIDDEN_NAMESPACE, "podName", POD_NAME), r -> {
+            assertTrue(r.isError());
+            assertEquals("Forbidden: the caller may not get pods/proxy in the namespace 'forbidden'.",
+                    r.content().get(0).asText().text());
+        }).thenAssertResults();
+
+        assertEquals(1, reviews.size());
+    }
+
+    @Test
+    public void testHistory_deniedNamespace() throws Exception {
+        // Subscribed to before the caller lost its access to the namespace
+        AttributeCollector.Series denied = attributeCollector.subscribe(FORBIDDEN_NAMESPACE, POD_NAME, MBEAN,
+                MBEAN_ATTRIBUTE, null, BEARER_TOKEN);
+        AttributeCollector.Series allowed = attributeCollector.subscribe(NAMESPACE, POD_NAME, MBEAN, MBEAN_ATTRIBUTE,
+                null, BEARER_TOKEN);
+        try {
+            McpAssured.baseUri = testUri;
+            Mockito.when(mockRequest.getHeader("Authorization"))
+                    .thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+            mcpClient.when()
+                    .resourcesRead("janus://history", r -> {
+                        String json = r.contents().get(0).asText().text();
+                        assertTrue(json.contains("\"series\":\"" + allowed.id() + "\""), json);
+                        assertFalse(json.contains(denied.id()), json);
+                    })
+                    .resourcesRead("janus://history/" + denied.id() + "/5m")
+                    .withErrorAssert(error -> assertTrue(error.code() < 0, error.toString()))
+                    .send()
+                    .toolsCall("unsubscribeAttribute", Map.of("series", denied.id()), r -> {
+                        assertTrue(r.isError());
+                        assertEquals("Forbidden: the caller may not get pods/proxy in the namespace 'forbidden'.",
+                                r.content().get(0).asText().text());
+                    })
+                    .thenAssertResults();
+
+            // The denied series is still collected, just out of the caller's reach, until its next scrape
+            assertTrue(attributeCollector.series(denied.id(), BEARER_TOKEN).isPresent());
+            attributeCollector.scrapeAll();
+            await(() -> attributeCollector.series(denied.id(), BEARER_TOKEN).isEmpty());
+            assertTrue(attributeCollector.series(allowed.id(), BEARER_TOKEN).isPresent());
+        } finally {
+            attributeCollector.unsubscribe(denied.id(), BEARER_TOKEN);
+            attributeCollector.unsubscribe(allowed.id(), BEARER_TOKEN);
+        }
+    }
+
+    @Test
+    public void testHistory_unauthenticatedOwner() throws Exception {
+        // Subscribed to before the token of the caller expired
+        AttributeCollector.Series expired = attributeCollector.subscribe(NAMESPACE, POD_NAME, MBEAN, MBEAN_ATTRIBUTE,
+                null, OTHER_BEARER_TOKEN);
+        AttributeCollector.Series other = attributeCollector.subscribe(FORBIDDEN_NAMESPACE, POD_NAME, MBEAN,
+                MBEAN_ATTRIBUTE, null, OTHER_BEARER_TOKEN);
+        try {
+            attributeCollector.scrapeAll();
+            await(() -> attributeCollector.allSeries(OTHER_BEARER_TOKEN).isEmpty());
+            assertEquals(0, reviews.size());
+        } finally {
+            attributeCollector.unsubscribe(expired.id(), OTHER_BEARER_TOKEN);
+            attributeCollector.unsubscribe(other.id(), OTHER_BEARER_TOKEN);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.hawt.synapse.janus;
+
+import java.util.Map;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Runs the jolokia client tests against the blocking apache client.
+ */
+@QuarkusTest
+@TestProfile(ApacheJolokiaClientTest.ApacheClientProfile.class)
+public class ApacheJolokiaClientTest extends JolokiaClientTest {
+
+    public static class ApacheClientProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("janus.jolokia.client", "apache");
+        }
+    }
+}
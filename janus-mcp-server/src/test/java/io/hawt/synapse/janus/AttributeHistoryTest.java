@@ -0,0 +1,66 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.jolokia.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+public class AttributeHistoryTest {
+
+    private static JSONArray point(JSONArray points, int index) {
+        return (JSONArray) points.get(index);
+    }
+
+    @Test
+    public void testAdd_overwritesOldest() {
+        AttributeHistory history = new AttributeHistory(3);
+        for (int i = 1; i <= 5; i++) {
+            history.add(i * 1000L, i);
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(3000L, history.oldest());
+        assertEquals(5000L, history.newest());
+
+        JSONArray points = history.window(0, 10);
+        assertEquals(3, points.size());
+        assertEquals(3000L, point(points, 0).get(0));
+        assertEquals(5.0, point(points, 2).get(1));
+    }
+
+    @Test
+    public void testWindow_from() {
+        AttributeHistory history = new AttributeHistory(10);
+        for (int i = 0; i < 10; i++) {
+            history.add(i * 1000L, i);
+        }
+
+        JSONArray points = history.window(7000, 10);
+        assertEquals(3, points.size());
+        assertEquals(7.0, point(points, 0).get(1));
+        assertEquals(0, history.window(10_000, 10).size());
+    }
+
+    @Test
+    public void testWindow_downsamples() {
+        AttributeHistory history = new AttributeHistory(100);
+        for (int i = 0; i < 100; i++) {
+            history.add(i * 1000L, i % 10);
+        }
+
+        JSONArray points = history.window(0, 10);
+        assertEquals(10, points.size());
+        for (int i = 0; i < 10; i++) {
+            JSONArray point = point(points, i);
+            assertEquals(i * 10_000L, point.get(0));
+            assertEquals(4.5, point.get(1));
+            assertEquals(0.0, point.get(2));
+            assertEquals(9.0, point.get(3));
+        }
+    }
+
+    @Test
+    public void testBytes() {
+        assertEquals(240 * 16, AttributeHistory.bytes(240));
+    }
+}
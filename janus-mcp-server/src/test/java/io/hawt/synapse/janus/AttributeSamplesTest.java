@@ -0,0 +1,85 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.jolokia.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class AttributeSamplesTest {
+
+    private static AttributeSamples samples(Object... values) {
+        AttributeSamples samples = new AttributeSamples(values.length);
+        for (int i = 0; i < values.length; i++) {
+            samples.add(i * 1000L, values[i], null);
+        }
+        return samples;
+    }
+
+    @Test
+    public void testSummary_gauge() {
+        JSONObject summary = samples(10, 30.5, 20, 40, 25).summary(null);
+
+        assertEquals(5, summary.get("samples"));
+        assertEquals(false, summary.get("counter"));
+        assertEquals(10.0, summary.get("min"));
+        assertEquals(40.0, summary.get("max"));
+        assertEquals(25.1, (double) summary.get("mean"), 1e-9);
+        assertEquals(25.0, ((JSONObject) summary.get("percentiles")).get("p50"));
+        assertEquals(40.0, ((JSONObject) summary.get("percentiles")).get("p99"));
+        assertEquals(15.0, summary.get("change"));
+        assertEquals(3.75, (double) summary.get("ratePerSecond"), 1e-9);
+        assertEquals(4000L, summary.get("durationMillis"));
+    }
+
+    @Test
+    public void testSummary_counterWithReset() {
+        JSONObject summary = samples(100L, 150L, 220L, 5L, 45L).summary(null);
+
+        assertEquals(true, summary.get("counter"));
+        assertEquals(1, summary.get("resets"));
+        // 50 + 70, then 5 since the reset and 40 after it
+        assertEquals(165.0, summary.get("increase"));
+        assertEquals(41.25, (double) summary.get("ratePerSecond"), 1e-9);
+    }
+
+    @Test
+    public void testSummary_counterGivenByCaller() {
+        // A shallow drop is not taken as a reset unless the caller says it is a counter
+        assertEquals(false, samples(100, 150, 120, 180).summary(null).get("counter"));
+
+        JSONObject summary = samples(100, 150, 120, 180).summary(true);
+        assertEquals(1, summary.get("resets"));
+        assertEquals(230.0, summary.get("increase"));
+    }
+
+    @Test
+    public void testAdd_pathAndNonNumeric() {
+        AttributeSamples samples = new AttributeSamples(3);
+        samples.add(0, Map.of("used", 1024L, "max", 4096L), "used");
+        samples.add(100, Map.of("used", 2048L), "/used");
+        samples.add(200, "not a number", "used");
+        samples.fail(new Exception("Connection refused"));
+
+        JSONObject summary = samples.summary(false);
+        assertEquals(2, summary.get("samples"));
+        assertEquals(1, summary.get("nonNumeric"));
+        assertEquals(1, summary.get("failed"));
+        assertEquals("Connection refused", summary.get("lastError"));
+        assertEquals(2048.0, summary.get("max"));
+    }
+
+    @Test
+    public void testSummary_noSamples() {
+        AttributeSamples samples = new AttributeSamples(2);
+        samples.add(0, "text", null);
+
+        JSONObject summary = samples.summary(null);
+        assertEquals(0, summary.get("samples"));
+        assertFalse(summary.containsKey("mean"));
+        assertTrue(summary.containsKey("nonNumeric"));
+    }
+}
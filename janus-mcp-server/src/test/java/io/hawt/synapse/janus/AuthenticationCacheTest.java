@@ -0,0 +1,124 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.AuthenticationException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.fabric8.kubernetes.api.model.authentication.TokenReview;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.kubernetes.client.KubernetesServer;
+import io.quarkus.test.kubernetes.client.KubernetesTestServer;
+import io.quarkus.test.kubernetes.client.WithKubernetesTestServer;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+@WithKubernetesTestServer
+public class AuthenticationCacheTest extends JanusTest {
+
+    @KubernetesTestServer
+    private KubernetesServer mockServer;
+
+    @Inject
+    private AuthenticationCache authenticationCache;
+
+    private final AtomicInteger reviewCount = new AtomicInteger();
+
+    @BeforeEach
+    public void setup() {
+        mockServer.getKubernetesMockServer().reset();
+        mockServer.getKubernetesMockServer().clearExpectations();
+        authenticationCache.invalidateAll();
+        reviewCount.set(0);
+
+        expectTokenReviews(mockServer.getKubernetesMockServer(), token -> {
+            reviewCount.incrementAndGet();
+            return !token.startsWith("bad");
+        });
+    }
+
+    private static String jwt(long expSeconds) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+        String claims = encoder.encodeToString(("{\"exp\":" + expSeconds + "}").getBytes(StandardCharsets.UTF_8));
+        return header + "." + claims + ".signature";
+    }
+
+    @Test
+    public void testAuthenticate_cachesSuccess() {
+        long hits = authenticationCache.hitCount();
+        long misses = authenticationCache.missCount();
+
+        assertDoesNotThrow(() -> authenticationCache.authenticate(BEARER_TOKEN));
+        assertDoesNotThrow(() -> authenticationCache.authenticate(BEARER_TOKEN));
+
+        assertEquals(1, reviewCount.get());
+        assertEquals(misses + 1, authenticationCache.missCount());
+        assertEquals(hits + 1, authenticationCache.hitCount());
+    }
+
+    @Test
+    public void testAuthenticate_tokenIsOnlyInTheSpec() {
+        List<TokenReview> sent = new CopyOnWriteArrayList<>();
+        mockServer.getKubernetesMockServer().clearExpectations();
+        mockServer.expect()
+            .post()
+            .withPath("/apis/authentication.k8s.io/v1/tokenreviews")
+            .andReply(201, request -> {
+                TokenReview review = Serialization.unmarshal(request.getBody().readUtf8(), TokenReview.class);
+                sent.add(review);
+                return tokenReview(review.getMetadata().getName(), review.getSpec().getToken(), true);
+            })
+            .always();
+
+        assertDoesNotThrow(() -> authenticationCache.authenticate(BEARER_TOKEN));
+
+        assertEquals(1, sent.size());
+        assertEquals(BEARER_TOKEN, sent.get(0).getSpec().getToken());
+        assertFalse(Serialization.asJson(sent.get(0).getMetadata()).contains(BEARER_TOKEN));
+    }
+
+    @Test
+    public void testAuthenticate_cachesFailure() {
+        assertThrows(AuthenticationException.class, () -> authenticationCache.authenticate("bad-token"));
+        assertThrows(AuthenticationException.class, () -> authenticationCache.authenticate("bad-token"));
+
+        assertEquals(1, reviewCount.get());
+    }
+
+    @Test
+    public void testAuthenticate_expiredTokenIsReviewedAgain() {
+        String expired = jwt(System.currentTimeMillis() / 1000 - 60);
+
+        assertDoesNotThrow(() -> authenticationCache.authenticate(expired));
+        assertDoesNotThrow(() -> authenticationCache.authenticate(expired));
+
+        assertEquals(2, reviewCount.get());
+    }
+
+    @Test
+    public void testTokenExpiry() {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        assertEquals(exp * 1000, authenticationCache.tokenExpiry(jwt(exp)));
+        assertEquals(null, authenticationCache.tokenExpiry(BEARER_TOKEN));
+    }
+
+    @Test
+    public void testHash_doesNotContainToken() {
+        String hash = AuthenticationCache.hash(BEARER_TOKEN);
+        assertEquals(64, hash.length());
+        assertFalse(hash.contains(BEARER_TOKEN));
+    }
+}
@@ -6,12 +6,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.DynamicTest.dynamicTest;
 
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.jboss.logging.Logger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.DynamicTest;
@@ -20,9 +24,14 @@ import org.junit.jupiter.api.TestFactory;
 import org.mockito.Mockito;
 
 import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.api.model.authentication.TokenReview;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.client.utils.Serialization;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
 import io.quarkiverse.mcp.server.test.McpAssured;
 import io.quarkiverse.mcp.server.test.McpAssured.McpStreamableTestClient;
 import io.quarkus.test.InjectMock;
@@ -37,7 +46,6 @@ import jakarta.inject.Inject;
 @QuarkusTest
 @WithKubernetesTestServer
 public class JanusServerTest extends JanusTest {
-    private static final Logger LOG = Logger.getLogger(JanusServerTest.class);
 
     @TestHTTPResource
     private URI testUri;
@@ -48,6 +56,17 @@ public class JanusServerTest extends JanusTest {
     @Inject
     private KubernetesClient kClient;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    InMemorySpanExporter spanExporter;
+
+    @Inject
+    AttributeCollector attributeCollector;
+
+    private static final String STUB_POD_NAME = "jolokia-stub";
+
     @InjectMock
     HttpServerRequest mockRequest;
 
@@ -64,24 +83,8 @@ public class JanusServerTest extends JanusTest {
 
         mockServer.getKubernetesMockServer().clearExpectations();
 
-        // Tailor the server to expect token reviews and return success only when BEARER_TOKEN is used
-        mockServer.expect()
-            .post()
-            .withPath("/apis/authentication.k8s.io/v1/tokenreviews")
-            .andReply(201, request -> {
-                // Deserialize the request body
-                TokenReview receivedReview = Serialization.unmarshal(request.getBody().readUtf8(), TokenReview.class);
-
-                // Check the token in the body and return the correct response
-                if (BEARER_TOKEN.equals(receivedReview.getSpec().getToken())) {
-                    LOG.info("TokenReview is good!");
-                    return tokenReview(receivedReview.getMetadata().getName(), receivedReview.getSpec().getToken(), true);
-                } else {
-                    LOG.debugf("Token '%s' in TokenReview is bad! ", receivedReview.getSpec().getToken());
-                    return tokenReview(receivedReview.getMetadata().getName(), receivedReview.getSpec().getToken(), false);
-                }
-            })
-            .always();
+        // Tailor the server to expect token reviews and return success only when BEARER_TOKEN or OTHER_BEARER_TOKEN is used
+        expectTokenReviews(mockServer.getKubernetesMockServer());
 
         // Build the valid pod for each test
         Pod validPod = buildPod(1, 1).build();
@@ -137,15 +140,531 @@ public class JanusServerTest extends JanusTest {
 
 
     @Test
-    public void testReadAttributeTool_ValidPod() {
+    public void testReadAttributeTool_ValidPod() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            mcpClient.when().toolsCall("readAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE,
+                            "maxDepth", 2, "maxCollectionSize", 50), r -> {
+                        assertFalse(r.isError());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertTrue(json.contains("\"value\":\"MyCamel\""), json);
+                        assertTrue(json.contains("\"attribute\":\"" + MBEAN_ATTRIBUTE + "\""), json);
+                    }).thenAssertResults();
+
+            // The processing parameters are passed on for the agent to trim the value
+            String path = stub.requests().get(0).path();
+            assertTrue(path.contains("maxDepth=2"), path);
+            assertTrue(path.contains("maxCollectionSize=50"), path);
+            assertFalse(path.contains("maxObjects"), path);
+        }
+    }
+
+    @Test
+    public void testReadAttributeTool_Projection() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "{\"request\":{\"type\":\"read\"},\"value\":{\"used\":1024,\"max\":4096,\"committed\":2048},"
+                    + "\"status\":200,\"timestamp\":1700000000}");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            Map<String, Object> args = Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN,
+                    "attribute", MBEAN_ATTRIBUTE);
+            Map<String, Object> projected = new HashMap<>(args);
+            projected.put("projection", "$.value.used");
+            Map<String, Object> missing = new HashMap<>(args);
+            missing.put("projection", "$.value.bogus");
+
+            mcpClient.when().toolsCall("readAttribute", projected, r -> {
+                assertFalse(r.isError(), r.toString());
+                assertEquals("1024", r.content().get(0).asResource().resource().asText().text());
+            }).toolsCall("readAttribute", missing, r -> {
+                assertTrue(r.isError());
+                assertTrue(r.content().get(0).asText().text().contains("matched nothing"));
+            }).thenAssertResults();
+        }
+    }
+
+    @Test
+    public void testToolMetrics() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            long before = toolCount("readAttribute", "success");
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            mcpClient.when().toolsCall("readAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE),
+                    r -> assertFalse(r.isError())).thenAssertResults();
+
+            assertEquals(before + 1, toolCount("readAttribute", "success"));
+            for (String phase : List.of(JanusMetrics.AUTHENTICATE, JanusMetrics.POD_LOOKUP, JanusMetrics.URL,
+                    JanusMetrics.JOLOKIA)) {
+                Timer timer = meterRegistry.find("janus.tool.phase.duration").tags("tool", "readAttribute", "phase", phase)
+                        .timer();
+                assertTrue(timer != null && timer.count() > 0, phase);
+            }
+            assertEquals(0, meterRegistry.get("janus.tool.in.flight").tags("tool", "readAttribute").gauge().value());
+
+            HttpResponse<String> scrape = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(testUri.resolve("/q/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, scrape.statusCode());
+            assertTrue(scrape.body().contains("janus_tool_duration_seconds_bucket{"), scrape.body());
+            assertTrue(scrape.body().contains("cache=\"token-reviews\""), scrape.body());
+        }
+    }
+
+    @Test
+    public void testToolTracing() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+            spanExporter.reset();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            mcpClient.when().toolsCall("readAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE),
+                    r -> assertFalse(r.isError())).thenAssertResults();
+
+            SpanData tool = awaitSpan(spanExporter, span -> span.getName().equals("readAttribute"));
+            assertEquals(STUB_POD_NAME, tool.getAttributes().get(JanusTracing.POD));
+            assertEquals(NAMESPACE, tool.getAttributes().get(JanusTracing.NAMESPACE));
+
+            // Each phase is a child of the tool call
+            for (String phase : List.of(JanusMetrics.AUTHENTICATE, JanusMetrics.POD_LOOKUP, JanusMetrics.URL)) {
+                SpanData span = awaitSpan(spanExporter, s -> phase.equals(s.getAttributes().get(JanusTracing.PHASE)));
+                assertEquals(tool.getSpanId(), span.getParentSpanId(), phase);
+            }
+            SpanData jolokia = awaitSpan(spanExporter,
+                    span -> JanusMetrics.JOLOKIA.equals(span.getAttributes().get(JanusTracing.PHASE)));
+            assertEquals(tool.getSpanId(), jolokia.getParentSpanId());
+
+            // The request to the agent is a child of the jolokia phase and carries its trace context
+            SpanData request = awaitSpan(spanExporter, span -> span.getKind() == SpanKind.CLIENT
+                    && span.getParentSpanId().equals(jolokia.getSpanId()));
+            assertEquals("00-" + tool.getTraceId() + "-" + request.getSpanId() + "-01",
+                    stub.requests().get(0).traceparent());
+        }
+    }
+
+    private long toolCount(String tool, String outcome) {
+        Timer timer = meterRegistry.find("janus.tool.duration").tags("tool", tool, "outcome", outcome).timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    @Test
+    public void testReadAttributeTool_OverResponseBudget() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            String large = "x".repeat(300 * 1024);
+            stub.respond(request -> "{\"request\":{\"type\":\"read\"},\"value\":\"" + large + "\",\"status\":200,\"timestamp\":1700000000}");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            mcpClient.when().toolsCall("readAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE), r -> {
+                        assertTrue(r.isError());
+                        String text = r.content().get(0).asText().text();
+                        assertTrue(text.contains("exceeds the response budget of 262144 bytes"), text);
+                    }).thenAssertResults();
+        }
+    }
+
+    @Test
+    public void testReadAttributesTool_ValidPod() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "[" +
+                    "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}," +
+                    "{\"request\":{\"type\":\"read\"},\"error_type\":\"javax.management.AttributeNotFoundException\",\"error\":\"No such attribute: Bogus\",\"status\":404}" +
+                    "]");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            mcpClient.when().toolsCall("readAttributes",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "attributes", List.of(
+                            Map.of("mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE),
+                            Map.of("mbean", MBEAN, "attribute", "Bogus"))), r -> {
+                        assertFalse(r.isError());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertTrue(json.contains("\"value\":\"MyCamel\""), json);
+                        assertTrue(json.contains("No such attribute: Bogus"), json);
+                    }).thenAssertResults();
+
+            assertEquals(1, stub.requests().size());
+        }
+    }
+
+    @Test
+    public void testSampleAttributeTool() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            // A counter that is reset part way through the sampling
+            long[] counts = { 100, 110, 125, 3, 13 };
+            AtomicInteger index = new AtomicInteger();
+            stub.respond(request -> {
+                int i = index.getAndIncrement();
+                if (i == 1) {
+                    throw new IllegalStateException("Injected agent failure");
+                }
+                return "{\"request\":{\"type\":\"read\"},\"value\":{\"count\":" + counts[Math.min(i, counts.length - 1)]
+                        + "},\"status\":200,\"timestamp\":1700000000}";
+            });
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            mcpClient.when().toolsCall("sampleAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE,
+                            "path", "count", "samples", 5, "intervalMillis", 100), r -> {
+                        assertFalse(r.isError(), r.toString());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertTrue(json.contains("\"samples\":4"), json);
+                        assertTrue(json.contains("\"failed\":1"), json);
+                        assertTrue(json.contains("\"counter\":true"), json);
+                        assertTrue(json.contains("\"resets\":1"), json);
+                        assertTrue(json.contains("\"min\":3.0"), json);
+                    }).thenAssertResults();
+
+            assertEquals(5, stub.requests().size());
+
+            // Sampling is bounded in the number of samples and in time
+            mcpClient.when().toolsCall("sampleAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE,
+                            "samples", 600, "intervalMillis", 1000), r -> {
+                        assertTrue(r.isError());
+                        assertTrue(r.content().get(0).asText().text().contains("must not take longer than 300 seconds"));
+                    }).thenAssertResults();
+        }
+    }
+
+    @Test
+    public void testSubscribeAttributeTool() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            AtomicInteger scrapes = new AtomicInteger();
+            stub.respond(request -> "[{\"request\":{\"type\":\"read\"},\"value\":{\"used\":" + scrapes.incrementAndGet()
+                    + "},\"status\":200,\"timestamp\":1700000000}]");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            String[] series = new String[1];
+            mcpClient.when().toolsCall("subscribeAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE,
+                            "path", "used"), r -> {
+                        assertFalse(r.isError(), r.toString());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        series[0] = json.replaceAll(".*\"series\":\"([0-9a-f]+)\".*", "$1");
+                    }).thenAssertResults();
+
+            // Wait for a few scrapes, each a single bulk request
+            for (int attempt = 0; attempt < 50 && scrapes.get() < 3; attempt++) {
+                Thread.sleep(100);
+            }
+            assertTrue(scrapes.get() >= 3, "The attribute was not scraped");
+            assertTrue(stub.requests().stream().allMatch(request -> request.body().startsWith("[")));
+
+            mcpClient.when()
+                    .resourcesList(page -> assertTrue(page.findByUri("janus://history") != null, page.toString()))
+                    .resourcesRead("janus://history", r -> {
+                        String json = r.contents().get(0).asText().text();
+                        assertTrue(json.contains("\"series\":\"" + series[0] + "\""), json);
+                    })
+                    .resourcesRead("janus://history/" + series[0] + "/5m/1", r -> {
+                        String json = r.contents().get(0).asText().text();
+                        assertTrue(json.contains("\"columns\":[\"time\",\"mean\",\"min\",\"max\"]"), json);
+                        assertTrue(json.contains("\"path\":\"used\""), json);
+                        // Downsampled to one point, from the first scrape to the last
+                        assertTrue(json.matches(".*\"points\":\\[\\[\\d+,[0-9.]+,1\\.0,\\d+\\.0\\]\\].*"), json);
+                    })
+                    .thenAssertResults();
+
+            // Another caller can neither see, read nor unsubscribe the series
+            Mockito.when(mockRequest.getHeader("Authorization"))
+                    .thenReturn(TestConstants.bearerTokenHeader(OTHER_BEARER_TOKEN));
+            McpStreamableTestClient otherClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+            otherClient.when()
+                    .resourcesRead("janus://history", r -> {
+                        String json = r.contents().get(0).asText().text();
+                        assertEquals("[]", json);
+                    })
+                    .resourcesRead("janus://history/" + series[0] + "/5m")
+                    .withErrorAssert(error -> assertTrue(error.code() < 0, error.toString()))
+                    .send()
+                    .toolsCall("unsubscribeAttribute", Map.of("series", series[0]), r -> {
+                        assertTrue(r.isError());
+                    })
+                    .thenAssertResults();
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+
+            // The calls of one batch run concurrently, so the second unsubscription is sent after the first
+            mcpClient.when().toolsCall("unsubscribeAttribute", Map.of("series", series[0]), r -> {
+                assertFalse(r.isError(), r.toString());
+            }).thenAssertResults();
+            mcpClient.when().toolsCall("unsubscribeAttribute", Map.of("series", series[0]), r -> {
+                assertTrue(r.isError());
+            }).thenAssertResults();
+        }
+    }
+
+    @Test
+    public void testSubscribeAttributeTool_PodDeleted() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "[{\"request\":{\"type\":\"read\"},\"value\":1,\"status\":200,\"timestamp\":1700000000}]");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName("collected-pod").endMetadata().build())
+                    .create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+            mcpClient.when().toolsCall("subscribeAttribute",
+                    Map.of("namespace", NAMESPACE, "podName", "collected-pod", "mbean", MBEAN, "attribute",
+                            MBEAN_ATTRIBUTE), r -> {
+                        assertFalse(r.isError(), r.toString());
+                    }).thenAssertResults();
+            await(() -> !stub.requests().isEmpty());
+
+            // Once the pod is gone its series is released after a few scrapes that do not find it
+            kClient.pods().inNamespace(NAMESPACE).withName("collected-pod").delete();
+            await(() -> attributeCollector.allSeries(BEARER_TOKEN).isEmpty());
+        }
+    }
+
+    @Test
+    public void testReadAttributesAcrossPodsTool() throws Exception {
+        try (JolokiaStubServer fast = JolokiaStubServer.start(); JolokiaStubServer slow = JolokiaStubServer.start()) {
+            String response = "[{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}]";
+            fast.respond(request -> response);
+            slow.respond(request -> {
+                try {
+                    Thread.sleep(3000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return response;
+            });
+
+            kClient.pods().resource(buildStubPod(fast).editMetadata().withName("fan-fast").addToLabels("app", "fan")
+                    .endMetadata().build()).create();
+            kClient.pods().resource(buildStubPod(slow).editMetadata().withName("fan-slow").addToLabels("app", "fan")
+                    .endMetadata().build()).create();
+            kClient.pods().resource(buildPod(1, -1).editMetadata().withName("fan-other").addToLabels("app", "fan")
+                    .endMetadata().build()).create();
+            kClient.apps().deployments().resource(new DeploymentBuilder().withNewMetadata().withName("fan")
+                    .withNamespace(NAMESPACE).endMetadata().withNewSpec().withNewSelector().addToMatchLabels("app", "fan")
+                    .endSelector().endSpec().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            double errors = targetErrors();
+            List<Map<String, String>> attributes = List.of(Map.of("mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE));
+            for (Map<String, Object> selection : List.<Map<String, Object>> of(Map.of("labelSelector", "app=fan"),
+                    Map.of("workload", "deployment/fan"))) {
+                Map<String, Object> args = new HashMap<>(selection);
+                args.putAll(Map.of("namespace", NAMESPACE, "attributes", attributes, "timeoutSeconds", 1));
+
+                mcpClient.when().toolsCall("readAttributesAcrossPods", args, r -> {
+                    assertFalse(r.isError());
+                    String json = r.content().get(0).asResource().resource().asText().text();
+                    assertTrue(json.contains("\"matchedPods\":3"), json);
+                    assertTrue(json.contains("\"jolokiaPods\":2"), json);
+                    assertTrue(json.contains("\"succeeded\":1"), json);
+                    assertTrue(json.contains("\"timedOut\":1"), json);
+                }).thenAssertResults();
+            }
+
+            assertTrue(meterRegistry.get("janus.target.failures").tags("namespace", NAMESPACE, "kind", "timeout").counter()
+                    .count() >= 2);
+            // The interrupted request of the slow pod must not count it as failed as well
+            Thread.sleep(500);
+            assertEquals(errors, targetErrors());
+        }
+    }
+
+    private double targetErrors() {
+        Counter errors = meterRegistry.find("janus.target.failures").tags("namespace", NAMESPACE, "kind", "error")
+                .counter();
+        return errors != null ? errors.count() : 0;
+    }
+
+    @Test
+    public void testReadAttributesAcrossPodsTool_NoSelection() {
         Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
         McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
 
-        mcpClient.when().toolsCall("readAttribute",
-                Map.of("namespace", NAMESPACE, "podName", POD_NAME, "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE), r -> {
-                    assertFalse(r.isError());
-                    assertEquals("Mock value for " + MBEAN_ATTRIBUTE + " on pod " + POD_NAME + " is 54321.",
+        mcpClient.when().toolsCall("readAttributesAcrossPods", Map.of("namespace", NAMESPACE, "attributes",
+                List.of(Map.of("mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE))), r -> {
+                    assertTrue(r.isError());
+                    assertEquals("Exactly one of a label selector or a workload must be given to choose the pods",
                             r.content().get(0).asText().text());
                 }).thenAssertResults();
     }
+
+    @Test
+    public void testListAttributesTool_SharedAcrossReplicas() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "{\"request\":{\"type\":\"list\"},\"value\":{\"desc\":\"A Camel context\","
+                    + "\"attr\":{\"CamelId\":{\"type\":\"java.lang.String\",\"rw\":false,\"desc\":\"Camel ID\"}},"
+                    + "\"op\":{\"start\":{\"args\":[],\"ret\":\"void\",\"desc\":\"Start\"}}},\"status\":200,\"timestamp\":1700000000}");
+
+            for (String replica : List.of("replica-a", "replica-b")) {
+                kClient.pods().resource(replicaPod(stub, replica, "sha256:1111")).create();
+            }
+            kClient.pods().resource(replicaPod(stub, "replica-c", "sha256:2222")).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            for (String replica : List.of("replica-a", "replica-b", "replica-c")) {
+                mcpClient.when().toolsCall("listAttributes",
+                        Map.of("namespace", NAMESPACE, "podName", replica, "mbean", MBEAN), r -> {
+                            assertFalse(r.isError());
+                            String json = r.content().get(0).asResource().resource().asText().text();
+                            assertTrue(json.contains("\"CamelId\""), json);
+                            assertFalse(json.contains("\"start\""), json);
+                        }).thenAssertResults();
+            }
+            mcpClient.when().toolsCall("listOperations",
+                    Map.of("namespace", NAMESPACE, "podName", "replica-b", "mbean", MBEAN), r -> {
+                        assertFalse(r.isError());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertTrue(json.contains("\"start\""), json);
+                    }).thenAssertResults();
+
+            // The replicas running the same image share one fetch, the other image has its own
+            assertEquals(2, stub.requests().size());
+        }
+    }
+
+    @Test
+    public void testListAttributesTool_Named() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> "{\"request\":{\"type\":\"list\"},\"value\":{\"type\":\"java.lang.String\",\"rw\":false,"
+                    + "\"desc\":\"Camel ID\"},\"status\":200,\"timestamp\":1700000000}");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            mcpClient.when().toolsCall("listAttributes",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "mbean", MBEAN, "name", "CamelId"), r -> {
+                        assertFalse(r.isError(), r.toString());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertTrue(json.contains("\"CamelId\""), json);
+                        assertTrue(json.contains("\"Camel ID\""), json);
+                    }).thenAssertResults();
+
+            // Only the one attribute is asked of the agent
+            assertEquals(1, stub.requests().size());
+            assertTrue(stub.requests().get(0).body().contains("/attr/CamelId"), stub.requests().get(0).body());
+        }
+    }
+
+    @Test
+    public void testListMBeansTool_Paged() throws Exception {
+        try (JolokiaStubServer stub = JolokiaStubServer.start()) {
+            stub.respond(request -> request.body().contains("notification")
+                    ? "[{\"status\":404,\"error_type\":\"java.lang.UnsupportedOperationException\",\"error\":\"No notifications\"}]"
+                    : "[{\"request\":{\"type\":\"search\"},\"value\":[\"java.lang:type=Memory\",\"java.lang:type=Runtime\","
+                            + "\"java.lang:type=Threading\",\"" + MBEAN.replace("\"", "\\\"") + "\"],\"status\":200,\"timestamp\":1700000000}]");
+            kClient.pods().resource(buildStubPod(stub).editMetadata().withName(STUB_POD_NAME).endMetadata().build()).create();
+
+            Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+            McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+            String[] cursor = new String[1];
+            mcpClient.when().toolsCall("listMBeans",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "pattern", "java.lang", "pageSize", 2), r -> {
+                        assertFalse(r.isError(), r.toString());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertTrue(json.contains("\"java.lang:type=Memory\",\"java.lang:type=Runtime\""), json);
+                        assertFalse(json.contains("Threading"), json);
+                        cursor[0] = json.replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+                    }).thenAssertResults();
+
+            mcpClient.when().toolsCall("listMBeans",
+                    Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "pattern", "java.lang", "pageSize", 2,
+                            "cursor", cursor[0]), r -> {
+                        assertFalse(r.isError(), r.toString());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertTrue(json.contains("\"java.lang:type=Threading\""), json);
+                        assertFalse(json.contains("nextCursor"), json);
+                        assertFalse(json.contains(MBEAN), json);
+                    })
+                    .toolsCall("listMBeans", Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "pageSize", 0), r -> {
+                        assertTrue(r.isError());
+                    })
+                    .toolsCall("listMBeans", Map.of("namespace", NAMESPACE, "podName", STUB_POD_NAME, "pattern", "java.lang",
+                            "projection", "$.mbeans[0]"), r -> {
+                        assertFalse(r.isError(), r.toString());
+                        String json = r.content().get(0).asResource().resource().asText().text();
+                        assertEquals("\"java.lang:type=Memory\"", json);
+                    }).thenAssertResults();
+
+            // The second page is served from the cached names
+            assertEquals(1, stub.requests().stream().filter(request -> request.body().contains("search")).count());
+        }
+    }
+
+    @Test
+    public void testListJolokiaPodsTool() throws Exception {
+        for (String name : List.of("pod-b", "pod-a", "pod-c")) {
+            kClient.pods().resource(buildPod(1, 1).editMetadata().withName(name).addToLabels("app", "camel")
+                    .endMetadata().build()).create();
+        }
+        kClient.pods().resource(buildPod(1, -1).editMetadata().withName("pod-d").addToLabels("app", "camel")
+                .endMetadata().build()).create();
+
+        Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+        McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+
+        String[] cursor = new String[1];
+        mcpClient.when().toolsCall("listJolokiaPods",
+                Map.of("namespace", NAMESPACE, "labelSelector", "app=camel", "pageSize", 2), r -> {
+                    assertFalse(r.isError(), r.toString());
+                    String json = r.content().get(0).asResource().resource().asText().text();
+                    assertTrue(json.indexOf("\"pod-a\"") >= 0 && json.indexOf("\"pod-a\"") < json.indexOf("\"pod-b\""), json);
+                    assertFalse(json.contains("pod-c"), json);
+                    assertTrue(json.contains("\"jolokiaUrl\""), json);
+                    cursor[0] = json.replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+                }).thenAssertResults();
+
+        mcpClient.when().toolsCall("listJolokiaPods",
+                Map.of("namespace", NAMESPACE, "labelSelector", "app=camel", "pageSize", 2, "cursor", cursor[0]), r -> {
+                    assertFalse(r.isError(), r.toString());
+                    String json = r.content().get(0).asResource().resource().asText().text();
+                    assertTrue(json.contains("\"pod-c\""), json);
+                    assertFalse(json.contains("pod-a") || json.contains("pod-d"), json);
+                    assertFalse(json.contains("nextCursor"), json);
+                })
+                .toolsCall("listJolokiaPods", Map.of("labelSelector", "app in camel"), r -> {
+                    assertTrue(r.isError());
+                }).thenAssertResults();
+    }
+
+    private static Pod replicaPod(JolokiaStubServer stub, String name, String imageId) {
+        return buildStubPod(stub)
+                .editMetadata().withName(name).withUid("uid-" + name)
+                    .addNewOwnerReference().withApiVersion("apps/v1").withKind("ReplicaSet").withName("camel-7d9f")
+                        .withUid("rs-uid").withController(true).endOwnerReference()
+                .endMetadata()
+                .editStatus().addNewContainerStatus().withName("camel").withImageID(imageId).endContainerStatus()
+                .endStatus()
+                .build();
+    }
 }
@@ -1,7 +1,10 @@
 package io.hawt.synapse.janus;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerBuilder;
@@ -9,6 +12,11 @@ import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.PodSpecBuilder;
 import io.fabric8.kubernetes.api.model.authentication.TokenReview;
 import io.fabric8.kubernetes.api.model.authentication.TokenReviewBuilder;
+import io.fabric8.kubernetes.api.model.authentication.UserInfoBuilder;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
 
 public abstract class JanusTest implements TestConstants {
 
@@ -47,6 +55,24 @@ public abstract class JanusTest implements TestConstants {
         return builder;
     }
 
+    /**
+     * Builds a jolokia pod whose jolokia port is served by the given stub server.
+     */
+    protected static PodBuilder buildStubPod(JolokiaStubServer stub) {
+        URI uri = URI.create(stub.url());
+        PodBuilder builder = buildPod(1, 1);
+        builder.editMetadata().addToAnnotations("hawt.io/protocol", uri.getScheme())
+                .addToAnnotations("hawt.io/jolokiaPath", uri.getPath()).endMetadata()
+                .editStatus().withPodIP(uri.getHost()).endStatus()
+                .editSpec().editFirstContainer().editMatchingPort(port -> "jolokia".equals(port.getName()))
+                .withContainerPort(uri.getPort()).endPort().endContainer().endSpec();
+        return builder;
+    }
+
+    /**
+     * Builds the outcome of a token review, an authenticated token being
+     * reviewed as {@link #USER} of the group {@link #USER_GROUP}.
+     */
     protected static TokenReview tokenReview(String reviewName, String token, boolean authenticated) {
         return new TokenReviewBuilder()
                 .withNewMetadata()
@@ -57,7 +83,60 @@ public abstract class JanusTest implements TestConstants {
                 .endSpec()
                 .withNewStatus()
                     .withAuthenticated(authenticated)
+                    .withUser(authenticated ? new UserInfoBuilder().withUsername(USER).withGroups(USER_GROUP).build() : null)
                 .endStatus()
                 .build();
     }
+
+    /**
+     * Has the mock server answer token reviews, authenticating only
+     * {@link #BEARER_TOKEN} and {@link #OTHER_BEARER_TOKEN}.
+     */
+    protected static void expectTokenReviews(KubernetesMockServer server) {
+        expectTokenReviews(server, token -> BEARER_TOKEN.equals(token) || OTHER_BEARER_TOKEN.equals(token));
+    }
+
+    /**
+     * Has the mock server answer token reviews, authenticating the tokens that match.
+     */
+    protected static void expectTokenReviews(KubernetesMockServer server, Predicate<String> authenticated) {
+        server.expect()
+                .post()
+                .withPath("/apis/authentication.k8s.io/v1/tokenreviews")
+                .andReply(201, request -> {
+                    TokenReview review = Serialization.unmarshal(request.getBody().readUtf8(), TokenReview.class);
+                    String token = review.getSpec().getToken();
+                    return tokenReview(review.getMetadata().getName(), token, authenticated.test(token));
+                })
+                .always();
+    }
+
+    /**
+     * Waits for a condition that is met in the background, such as by the informers.
+     */
+    protected static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new AssertionError("Timed out waiting for the condition");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Waits for the exporter to receive a span that matches, as spans are exported in batches.
+     */
+    protected static SpanData awaitSpan(InMemorySpanExporter exporter, Predicate<SpanData> matches)
+            throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            for (SpanData span : exporter.getFinishedSpanItems()) {
+                if (matches.test(span)) {
+                    return span;
+                }
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No matching span was exported: " + exporter.getFinishedSpanItems());
+    }
 }
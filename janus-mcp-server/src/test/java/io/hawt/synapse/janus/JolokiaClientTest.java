@@ -0,0 +1,432 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+import org.jolokia.json.parser.JSONParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+public class JolokiaClientTest extends JanusTest {
+
+    @Inject
+    private JolokiaServiceFactory jolokiaServiceFactory;
+
+    @Inject
+    private OpenTelemetry openTelemetry;
+
+    @Inject
+    private InMemorySpanExporter spanExporter;
+
+    @ConfigProperty(name = "janus.jolokia.client")
+    String clientType;
+
+    private JolokiaStubServer stub;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        stub = JolokiaStubServer.start();
+    }
+
+    @AfterEach
+    public void teardown() {
+        stub.close();
+    }
+
+    @Test
+    public void testVersion() throws Exception {
+        Optional<JSONObject> version = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN).version();
+
+        assertTrue(version.isPresent());
+        assertEquals("2.3.0", ((JSONObject) version.get().get("value")).get("agent"));
+    }
+
+    @Test
+    public void testClientsShareConnectionsWithTheirOwnToken() throws Exception {
+        JolokiaService first = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        JolokiaService second = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN + "-other");
+
+        first.version();
+        second.version();
+        first.version();
+
+        List<JolokiaStubServer.Request> requests = stub.requests();
+        assertEquals(3, requests.size());
+        assertEquals(TestConstants.bearerTokenHeader(BEARER_TOKEN), requests.get(0).authorization());
+        assertEquals(TestConstants.bearerTokenHeader(BEARER_TOKEN + "-other"), requests.get(1).authorization());
+        assertEquals(TestConstants.bearerTokenHeader(BEARER_TOKEN), requests.get(2).authorization());
+
+        // Sequential requests from both clients are served over the one pooled connection
+        assertEquals(1, requests.stream().mapToInt(JolokiaStubServer.Request::clientPort).distinct().count());
+    }
+
+    @Test
+    public void testTraceContextIsPropagated() throws Exception {
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+
+        Span parent = openTelemetry.getTracer("test").spanBuilder("caller").startSpan();
+        try (Scope scope = parent.makeCurrent()) {
+            service.version();
+        } finally {
+            parent.end();
+        }
+
+        String traceId = parent.getSpanContext().getTraceId();
+        SpanData request = awaitSpan(spanExporter,
+                span -> span.getKind() == SpanKind.CLIENT && span.getTraceId().equals(traceId));
+        assertEquals(parent.getSpanContext().getSpanId(), request.getParentSpanId());
+        assertEquals(200L, request.getAttributes().get(AttributeKey.longKey("http.response.status_code")));
+
+        // The agent is handed the context of the client span
+        String traceparent = stub.requests().get(0).traceparent();
+        assertEquals("00-" + traceId + "-" + request.getSpanId() + "-01", traceparent);
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        stub.respond(request -> "[" +
+                "{\"request\":{\"type\":\"read\",\"mbean\":\"java.lang:type=Memory\",\"attribute\":\"HeapMemoryUsage\"},\"value\":{\"used\":1024},\"status\":200,\"timestamp\":1700000000}," +
+                "{\"request\":{\"type\":\"read\",\"mbean\":\"java.lang:type=Memory\",\"attribute\":\"Bogus\"},\"error_type\":\"javax.management.AttributeNotFoundException\",\"error\":\"javax.management.AttributeNotFoundException : No such attribute: Bogus\",\"status\":404}," +
+                "{\"request\":{\"type\":\"exec\",\"mbean\":\"java.lang:type=Memory\",\"operation\":\"gc\"},\"value\":null,\"status\":200,\"timestamp\":1700000000}" +
+                "]");
+
+        List<JolokiaRequest> requests = List.of(
+                JolokiaRequest.read("java.lang:type=Memory", "HeapMemoryUsage"),
+                JolokiaRequest.read("java.lang:type=Memory", "Bogus"),
+                JolokiaRequest.exec("java.lang:type=Memory", "gc"));
+        List<JolokiaResult> results = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN).bulk(requests);
+
+        // All of the requests are sent in one POST
+        assertEquals(1, stub.requests().size());
+        assertEquals("POST", stub.requests().get(0).method());
+
+        assertEquals(3, results.size());
+        assertFalse(results.get(0).isError());
+        assertEquals(1024L, ((Number) ((JSONObject) results.get(0).value()).get("used")).longValue());
+        assertTrue(results.get(1).isError());
+        assertTrue(results.get(1).error().contains("No such attribute: Bogus"));
+        assertFalse(results.get(2).isError());
+        assertSame(requests.get(2), results.get(2).request());
+    }
+
+    @Test
+    public void testReadWithProcessingOptions() throws Exception {
+        stub.respond(request -> "{\"request\":{\"type\":\"read\"},\"value\":{\"used\":1024},\"status\":200,\"timestamp\":1700000000}");
+
+        Optional<Object> value = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN)
+                .read("java.lang:type=Memory", "HeapMemoryUsage", new ReadOptions(1, null, 100, true));
+
+        assertTrue(value.isPresent());
+        String path = stub.requests().get(0).path();
+        assertTrue(path.contains("maxDepth=1"), path);
+        assertTrue(path.contains("maxObjects=100"), path);
+        assertTrue(path.contains("ignoreErrors=true"), path);
+        assertFalse(path.contains("maxCollectionSize"), path);
+    }
+
+    @Test
+    public void testConcurrentAsyncReads() throws Exception {
+        stub.respond(request -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}";
+        });
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        List<Uni<Optional<Object>>> reads = IntStream.range(0, 10)
+                .mapToObj(i -> service.readAsync(MBEAN, MBEAN_ATTRIBUTE, ReadOptions.DEFAULTS))
+                .toList();
+
+        long start = System.nanoTime();
+        List<Optional<Object>> values = Uni.join().all(reads).andFailFast().await().atMost(Duration.ofSeconds(10));
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(10, values.size());
+        assertEquals(Optional.of("MyCamel"), values.get(0));
+        // The reads wait on the slow agent together rather than one after another
+        assertTrue(elapsed < 2500, "The reads took " + elapsed + "ms");
+    }
+
+    @Test
+    public void testListMBeansIsMaintainedFromNotifications() throws Exception {
+        AtomicInteger pulls = new AtomicInteger();
+        stub.respond(request -> notificationAgent(request, pulls));
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        assertEquals(List.of("a:type=1", "b:type=2"), service.listMBeans());
+        assertEquals(1, searches());
+
+        // Within the sync interval the list is served without asking the agent
+        int requests = stub.requests().size();
+        service.listMBeans();
+        assertEquals(requests, stub.requests().size());
+
+        Thread.sleep(2100);
+
+        // The pending notifications are applied rather than the names fetched again
+        assertEquals(List.of("b:type=2", "c:type=3"), service.listMBeans());
+        assertEquals(1, searches());
+        assertEquals(1, pulls.get());
+    }
+
+    @Test
+    public void testListMBeansRecoversFromAFailedSearch() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        stub.respond(request -> request.body().contains("\"search\"") && searches.incrementAndGet() == 1
+                ? "[{\"request\":{\"type\":\"search\"},\"status\":500,\"error_type\":\"java.lang.IllegalStateException\","
+                        + "\"error\":\"The search failed\"}]"
+                : notificationAgent(request, new AtomicInteger()));
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        assertThrows(Exception.class, service::listMBeans);
+        // The client subscribed before the failed search is released rather than kept
+        assertEquals(1, stub.requests().stream().filter(request -> request.body().contains("\"unregister\"")).count());
+
+        assertEquals(List.of("a:type=1", "b:type=2"), service.listMBeans());
+        assertEquals(2, searches());
+    }
+
+    @Test
+    public void testListMBeansRefreshIsShared() throws Exception {
+        stub.respond(request -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return notificationAgent(request, new AtomicInteger());
+        });
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<String>>> lists = IntStream.range(0, 10)
+                    .mapToObj(i -> executor.submit(service::listMBeans))
+                    .toList();
+            for (Future<List<String>> list : lists) {
+                assertEquals(List.of("a:type=1", "b:type=2"), list.get());
+            }
+        }
+        assertEquals(1, searches());
+    }
+
+    @Test
+    public void testMBeanListsAreKeptForEachToken() throws Exception {
+        stub.respond(request -> notificationAgent(request, new AtomicInteger()));
+
+        assertEquals(List.of("a:type=1", "b:type=2"),
+                jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN).listMBeans());
+        assertEquals(List.of("a:type=1", "b:type=2"),
+                jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN).listMBeans());
+        assertEquals(1, searches());
+
+        // The agent may let another token see other MBeans
+        assertEquals(List.of("a:type=1", "b:type=2"),
+                jolokiaServiceFactory.createService(stub.url(), OTHER_BEARER_TOKEN).listMBeans());
+        assertEquals(2, searches());
+
+        // Releasing the endpoint unsubscribes each token from its notifications
+        jolokiaServiceFactory.invalidate(stub.url());
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (stub.requests().stream().filter(request -> request.body().contains("\"unregister\"")).count() < 2) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the unregister requests");
+            Thread.sleep(50);
+        }
+
+        jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN).listMBeans();
+        assertEquals(3, searches());
+    }
+
+    @Test
+    public void testIdenticalReadsInFlightAreCoalesced() throws Exception {
+        stub.respond(request -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}";
+        });
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        JolokiaService other = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN + "-other");
+        List<Uni<Optional<Object>>> reads = IntStream.range(0, 10)
+                .mapToObj(i -> (i < 8 ? service : other).readAsync(MBEAN, MBEAN_ATTRIBUTE, ReadOptions.DEFAULTS))
+                .toList();
+
+        List<Optional<Object>> values = Uni.join().all(reads).andFailFast().await().atMost(Duration.ofSeconds(10));
+
+        assertTrue(values.stream().allMatch(Optional.of("MyCamel")::equals));
+        // The reads with the same token share one request, those with another token are not answered with it
+        assertEquals(2, stub.requests().size());
+    }
+
+    @Test
+    public void testRecentReadsAreKept() throws Exception {
+        stub.respond(request -> "{\"request\":{\"type\":\"read\"},\"value\":" + stub.requests().size()
+                + ",\"status\":200,\"timestamp\":1700000000}");
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        // The tests keep the reads of this MBean for a while
+        assertEquals(Optional.of(1L), service.read("test:type=Cached", "Count"));
+        assertEquals(Optional.of(1L), service.read("test:type=Cached", "Count"));
+        assertEquals(1, stub.requests().size());
+
+        // Other MBeans are not kept, nor are uncached reads answered from what is
+        assertEquals(Optional.of(2L), service.read(MBEAN, MBEAN_ATTRIBUTE));
+        assertEquals(Optional.of(3L), service.read(MBEAN, MBEAN_ATTRIBUTE));
+        assertEquals(Optional.of(4L), service.readUncachedAsync("test:type=Cached", "Count", ReadOptions.DEFAULTS)
+                .await().atMost(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    public void testCircuitBreakerFailsFast() throws Exception {
+        stub.respond(request -> {
+            throw new IllegalStateException("The agent is failing");
+        });
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        for (int i = 0; i < 5; i++) {
+            assertThrows(Exception.class, service::version);
+        }
+        assertEquals(5, stub.requests().size());
+
+        // The breaker is open so the request fails without reaching the agent
+        long start = System.nanoTime();
+        Exception failure = assertThrows(Exception.class, service::version);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+        assertTrue(causes(failure).anyMatch(cause -> String.valueOf(cause.getMessage()).contains("circuit breaker")),
+                failure.toString());
+        assertEquals(5, stub.requests().size());
+    }
+
+    @Test
+    public void testSlowReadIsHedged() throws Exception {
+        assumeTrue("vertx".equals(clientType), "Only the vertx client hedges requests");
+
+        AtomicInteger reads = new AtomicInteger();
+        stub.respond(request -> {
+            if (reads.incrementAndGet() == 21) {
+                try {
+                    Thread.sleep(3000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}";
+        });
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        for (int i = 0; i < 20; i++) {
+            service.read(MBEAN, MBEAN_ATTRIBUTE);
+        }
+
+        // The 21st read is stuck at the agent, so a second attempt answers it
+        long start = System.nanoTime();
+        assertEquals(Optional.of("MyCamel"), service.read(MBEAN, MBEAN_ATTRIBUTE));
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(elapsed < 2000, "The read took " + elapsed + "ms");
+        assertEquals(22, stub.requests().size());
+    }
+
+    @Test
+    public void testSlowListFollowingFastReadsIsNotTimedOut() throws Exception {
+        stub.respond(request -> {
+            if (request.body().contains("\"list\"") || request.path().contains("/list")) {
+                try {
+                    Thread.sleep(1500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "{\"request\":{\"type\":\"list\"},\"value\":{\"attr\":{\"CamelId\":{\"type\":\"java.lang.String\"}}},"
+                        + "\"status\":200,\"timestamp\":1700000000}";
+            }
+            return "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}";
+        });
+
+        JolokiaService service = jolokiaServiceFactory.createService(stub.url(), BEARER_TOKEN);
+        for (int i = 0; i < 20; i++) {
+            service.read(MBEAN, MBEAN_ATTRIBUTE);
+        }
+
+        // The reads would time the list out after a second, and hedge it, were it timed by their latencies
+        assertTrue(service.listAttributes(MBEAN).containsKey(MBEAN_ATTRIBUTE));
+        assertEquals(21, stub.requests().size());
+    }
+
+    private static Stream<Throwable> causes(Throwable failure) {
+        return Stream.iterate(failure, Objects::nonNull, Throwable::getCause);
+    }
+
+    private long searches() {
+        return stub.requests().stream().filter(request -> request.body().contains("\"search\"")).count();
+    }
+
+    /**
+     * Answers as an agent holding two MBeans, which on the first pull reports one
+     * MBean registered and one unregistered.
+     */
+    private static String notificationAgent(JolokiaStubServer.Request request, AtomicInteger pulls) {
+        JSONArray responses = new JSONArray();
+        try {
+            for (Object item : (JSONArray) new JSONParser().parse(request.body())) {
+                JSONObject req = (JSONObject) item;
+                Object value = switch (req.get("type") + ":" + req.getOrDefault("command", req.get("operation"))) {
+                    case "notification:register" -> Map.of("id", "client-1", "backend",
+                            Map.of("pull", Map.of("store", "jolokia:type=NotificationStore")));
+                    case "notification:add" -> "1";
+                    case "notification:ping", "notification:unregister" -> null;
+                    case "search:null" -> List.of("a:type=1", "b:type=2");
+                    case "exec:pull" -> pulls.incrementAndGet() == 1
+                            ? Map.of("dropped", 0, "notifications", List.of(
+                                    Map.of("type", "JMX.mbean.registered", "mBeanName", Map.of("objectName", "c:type=3")),
+                                    Map.of("type", "JMX.mbean.unregistered", "mBeanName", "a:type=1")))
+                            : Map.of("dropped", 0, "notifications", List.of());
+                    default -> throw new IllegalArgumentException("Unexpected request " + req);
+                };
+                JSONObject response = new JSONObject();
+                response.put("request", req);
+                response.put("value", value);
+                response.put("status", 200);
+                responses.add(response);
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        return responses.toString();
+    }
+}
@@ -2,15 +2,19 @@ package io.hawt.synapse.janus;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.URL;
 
 import org.junit.jupiter.api.Test;
 
 import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 
@@ -66,4 +70,39 @@ public class JolokiaConnectionTest extends JanusTest {
 
         }, "connectionURL should not throw an exception for a valid pod");
     }
+
+    @Test
+    public void testHasJolokiaPort() {
+        assertFalse(jolokiaService.hasJolokiaPort(null));
+        assertFalse(jolokiaService.hasJolokiaPort(buildPod(3, -1).build()));
+        assertTrue(jolokiaService.hasJolokiaPort(buildPod(3, 3).build()));
+    }
+
+    @Test
+    public void testConnectionURL_annotatedJolokiaPod() {
+        Pod pod = buildPod(1, 1).editMetadata().addToAnnotations("hawt.io/protocol", "http")
+                .addToAnnotations("hawt.io/jolokiaPath", "/actuator/jolokia").endMetadata().build();
+
+        assertDoesNotThrow(() -> {
+
+            URL url = jolokiaService.connectionURL(pod);
+            assertEquals(String.format("http://%s:%d/actuator/jolokia", POD_IP, JOLOKIA_CONTAINER_PORT),
+                    url.toString());
+
+        }, "connectionURL should not throw an exception for a valid pod");
+    }
+
+    @Test
+    public void testConnectionURL_resolvedOncePerResourceVersion() throws Exception {
+        Pod pod = buildPod(1, 1).editMetadata().withUid("memo-uid").withResourceVersion("1").endMetadata().build();
+        URL url = jolokiaService.connectionURL(pod);
+
+        // The same resourceVersion is taken to be the same pod so the resolved url is reused
+        Pod sameVersion = new PodBuilder(pod).editStatus().withPodIP("10.0.0.99").endStatus().build();
+        assertSame(url, jolokiaService.connectionURL(sameVersion));
+
+        // A new resourceVersion is resolved again
+        Pod newVersion = new PodBuilder(sameVersion).editMetadata().withResourceVersion("2").endMetadata().build();
+        assertEquals("10.0.0.99", jolokiaService.connectionURL(newVersion).getHost());
+    }
 }
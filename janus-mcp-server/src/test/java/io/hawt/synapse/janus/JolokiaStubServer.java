@@ -0,0 +1,120 @@
+package io.hawt.synapse.janus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import javax.net.ssl.SSLContext;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * An in-process stand-in for the jolokia agent of a target application.
+ * Every request is recorded and answered by a configurable responder.
+ */
+public class JolokiaStubServer implements AutoCloseable {
+
+    /**
+     * A request received by the stub.
+     *
+     * @param method        the http method
+     * @param path          the request path, including any query
+     * @param authorization the Authorization header
+     * @param body          the request body
+     * @param clientPort    the port of the client end of the connection the request arrived on
+     * @param traceparent   the W3C traceparent header, if any
+     */
+    public record Request(String method, String path, String authorization, String body, int clientPort,
+            String traceparent) {
+    }
+
+    public static final String VERSION_RESPONSE = "{\"request\":{\"type\":\"version\"},\"value\":{\"agent\":\"2.3.0\",\"protocol\":\"8.0\",\"config\":{},\"info\":{}},\"status\":200,\"timestamp\":1700000000}";
+
+    private final HttpServer server;
+
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+    private volatile Function<Request, String> responder = request -> VERSION_RESPONSE;
+
+    private JolokiaStubServer(HttpServer server) {
+        this.server = server;
+    }
+
+    public static JolokiaStubServer start() throws IOException {
+        return start(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0));
+    }
+
+    /**
+     * Starts a stub served over https with the given SSL context.
+     */
+    public static JolokiaStubServer start(SSLContext sslContext) throws IOException {
+        HttpsServer server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        return start(server);
+    }
+
+    private static JolokiaStubServer start(HttpServer server) {
+        JolokiaStubServer stub = new JolokiaStubServer(server);
+        server.createContext("/", stub::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return stub;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream input = exchange.getRequestBody()) {
+            body = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        Request request = new Request(exchange.getRequestMethod(), exchange.getRequestURI().toString(),
+                exchange.getRequestHeaders().getFirst("Authorization"), body,
+                exchange.getRemoteAddress().getPort(), exchange.getRequestHeaders().getFirst("traceparent"));
+        requests.add(request);
+
+        byte[] response;
+        int status = 200;
+        try {
+            response = responder.apply(request).getBytes(StandardCharsets.UTF_8);
+        } catch (RuntimeException ex) {
+            status = 500;
+            response = String.valueOf(ex.getMessage()).getBytes(StandardCharsets.UTF_8);
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(response);
+        }
+    }
+
+    /**
+     * @return the url of the stub's jolokia endpoint
+     */
+    public String url() {
+        String scheme = server instanceof HttpsServer ? "https" : "http";
+        return scheme + "://127.0.0.1:" + server.getAddress().getPort() + "/jolokia/";
+    }
+
+    public void respond(Function<Request, String> responder) {
+        this.responder = responder;
+    }
+
+    public List<Request> requests() {
+        return requests;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,66 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.jolokia.json.JSONArray;
+import org.jolokia.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class JsonProjectionTest {
+
+    private static JSONObject heap() {
+        JSONObject usage = new JSONObject();
+        usage.put("used", 1024L);
+        usage.put("max", 4096L);
+
+        JSONObject json = new JSONObject();
+        json.put("mbean", "java.lang:type=Memory");
+        json.put("attribute", "HeapMemoryUsage");
+        json.put("value", usage);
+        return json;
+    }
+
+    @Test
+    public void testProject_definite() {
+        assertEquals(1024L, JsonProjection.project(heap(), "$.value.used"));
+        assertEquals("{\"max\":4096,\"used\":1024}",
+                JsonProjection.toJSONString(JsonProjection.project(heap(), "$.value")).replace(" ", ""));
+    }
+
+    @Test
+    public void testProject_indefinite() {
+        JSONArray results = new JSONArray();
+        results.add(heap());
+        results.add(heap());
+
+        assertEquals("[1024,1024]", JsonProjection.toJSONString(JsonProjection.project(results, "$[*].value.used")));
+        assertEquals("[]", JsonProjection.toJSONString(JsonProjection.project(results, "$[*].bogus")));
+    }
+
+    @Test
+    public void testProject_none() {
+        JSONObject json = heap();
+        assertSame(json, JsonProjection.project(json, null));
+        assertSame(json, JsonProjection.project(json, " "));
+    }
+
+    @Test
+    public void testProject_failures() {
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> JsonProjection.project(heap(), "$.value.committed"));
+        assertTrue(missing.getMessage().contains("matched nothing"), missing.getMessage());
+
+        IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class,
+                () -> JsonProjection.project(heap(), "$.value.["));
+        assertTrue(invalid.getMessage().contains("not a valid JSONPath"), invalid.getMessage());
+    }
+
+    @Test
+    public void testToJSONString_scalar() {
+        assertEquals("\"MyCamel\"", JsonProjection.toJSONString("MyCamel"));
+        assertEquals("42", JsonProjection.toJSONString(42));
+    }
+}
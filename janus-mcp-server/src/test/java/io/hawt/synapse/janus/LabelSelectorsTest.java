@@ -0,0 +1,68 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.fabric8.kubernetes.api.model.LabelSelector;
+import io.fabric8.kubernetes.api.model.LabelSelectorBuilder;
+
+public class LabelSelectorsTest {
+
+    private static final Map<String, String> LABELS = Map.of("app", "orders", "tier", "backend", "canary", "true");
+
+    @Test
+    public void testParse_equality() {
+        assertTrue(LabelSelectors.parse("app=orders").test(LABELS));
+        assertTrue(LabelSelectors.parse("app==orders,tier=backend").test(LABELS));
+        assertFalse(LabelSelectors.parse("app=orders,tier=frontend").test(LABELS));
+        assertTrue(LabelSelectors.parse("tier!=frontend").test(LABELS));
+        assertFalse(LabelSelectors.parse("app!=orders").test(LABELS));
+    }
+
+    @Test
+    public void testParse_sets() {
+        assertTrue(LabelSelectors.parse("tier in (frontend, backend)").test(LABELS));
+        assertFalse(LabelSelectors.parse("tier notin (frontend,backend)").test(LABELS));
+        assertTrue(LabelSelectors.parse("app=orders,tier in (backend),zone notin (a)").test(LABELS));
+    }
+
+    @Test
+    public void testParse_existence() {
+        assertTrue(LabelSelectors.parse("canary").test(LABELS));
+        assertFalse(LabelSelectors.parse("!canary").test(LABELS));
+        assertTrue(LabelSelectors.parse("!zone").test(LABELS));
+        assertFalse(LabelSelectors.parse("zone").test(null));
+    }
+
+    @Test
+    public void testParse_everything() {
+        assertTrue(LabelSelectors.parse(null).test(LABELS));
+        assertTrue(LabelSelectors.parse(" ").test(null));
+    }
+
+    @Test
+    public void testParse_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> LabelSelectors.parse("app=orders,,tier=backend"));
+        assertThrows(IllegalArgumentException.class, () -> LabelSelectors.parse("tier within (a)"));
+    }
+
+    @Test
+    public void testToString() {
+        LabelSelector selector = new LabelSelectorBuilder()
+                .addToMatchLabels("app", "orders")
+                .addNewMatchExpression().withKey("tier").withOperator("In").withValues("backend", "batch").endMatchExpression()
+                .addNewMatchExpression().withKey("canary").withOperator("DoesNotExist").endMatchExpression()
+                .build();
+
+        String selectorString = LabelSelectors.toString(selector);
+        assertEquals("app=orders,tier in (backend,batch),!canary", selectorString);
+        assertFalse(LabelSelectors.parse(selectorString).test(LABELS));
+        assertTrue(LabelSelectors.parse(selectorString).test(Map.of("app", "orders", "tier", "batch")));
+    }
+}
@@ -0,0 +1,118 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.jolokia.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MBeanMetadataCacheTest {
+
+    private static Pod pod(String name, String ownerUid, String... imageIds) {
+        PodBuilder builder = new PodBuilder().withNewMetadata().withName(name).withNamespace("ns")
+                .withUid("uid-" + name).endMetadata().withNewStatus().endStatus();
+        if (ownerUid != null) {
+            builder.editMetadata().addNewOwnerReference().withKind("ReplicaSet").withName("rs").withUid(ownerUid)
+                    .withController(true).endOwnerReference().endMetadata();
+        }
+        for (String imageId : imageIds) {
+            builder.editStatus().addNewContainerStatus().withImageID(imageId).endContainerStatus().endStatus();
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testWorkloadKey_replicasShare() {
+        assertEquals(MBeanMetadataCache.workloadKey(pod("a", "rs-1", "sha256:1", "sha256:2")),
+                MBeanMetadataCache.workloadKey(pod("b", "rs-1", "sha256:2", "sha256:1")));
+    }
+
+    @Test
+    public void testWorkloadKey_differentImagesOrOwners() {
+        assertNotEquals(MBeanMetadataCache.workloadKey(pod("a", "rs-1", "sha256:1")),
+                MBeanMetadataCache.workloadKey(pod("b", "rs-1", "sha256:2")));
+        assertNotEquals(MBeanMetadataCache.workloadKey(pod("a", "rs-1", "sha256:1")),
+                MBeanMetadataCache.workloadKey(pod("b", "rs-2", "sha256:1")));
+    }
+
+    @Test
+    public void testWorkloadKey_unownedPodsShareNothing() {
+        assertNotEquals(MBeanMetadataCache.workloadKey(pod("a", null, "sha256:1")),
+                MBeanMetadataCache.workloadKey(pod("b", null, "sha256:1")));
+        assertEquals("ns/uid-a", MBeanMetadataCache.workloadKey(pod("a", "rs-1")));
+    }
+
+    @Test
+    public void testMetadata_concurrentMissesShareOneFetch() throws Exception {
+        MBeanMetadataCache cache = new MBeanMetadataCache();
+        cache.registry = new SimpleMeterRegistry();
+        cache.maximumSize = 100;
+        cache.revalidateAfter = Duration.ofMinutes(10);
+        cache.init();
+
+        JSONObject metadata = new JSONObject();
+        AtomicInteger fetches = new AtomicInteger();
+        JolokiaService service = Mockito.mock(JolokiaService.class);
+        Mockito.when(service.mbeanInfo("java.lang:type=Memory")).thenAnswer(invocation -> {
+            fetches.incrementAndGet();
+            Thread.sleep(200);
+            return metadata;
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<JSONObject>> results = IntStream.range(0, 10)
+                    .mapToObj(i -> executor.submit(() -> cache.metadata(pod("pod-" + i, "rs-1", "sha256:1"),
+                            "java.lang:type=Memory", TestConstants.BEARER_TOKEN, service)))
+                    .toList();
+            for (Future<JSONObject> result : results) {
+                assertSame(metadata, result.get());
+            }
+        } finally {
+            cache.close();
+        }
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testMetadata_keptForEachToken() throws Exception {
+        MBeanMetadataCache cache = new MBeanMetadataCache();
+        cache.registry = new SimpleMeterRegistry();
+        cache.maximumSize = 100;
+        cache.revalidateAfter = Duration.ofMinutes(10);
+        cache.init();
+
+        AtomicInteger fetches = new AtomicInteger();
+        JolokiaService service = Mockito.mock(JolokiaService.class);
+        Mockito.when(service.mbeanInfo("java.lang:type=Memory")).thenAnswer(invocation -> {
+            fetches.incrementAndGet();
+            return new JSONObject();
+        });
+
+        try {
+            Pod pod = pod("a", "rs-1", "sha256:1");
+            cache.metadata(pod, "java.lang:type=Memory", TestConstants.BEARER_TOKEN, service);
+            assertTrue(cache.cached(pod, "java.lang:type=Memory", TestConstants.OTHER_BEARER_TOKEN).isEmpty());
+            cache.metadata(pod("b", "rs-1", "sha256:1"), "java.lang:type=Memory", TestConstants.OTHER_BEARER_TOKEN,
+                    service);
+            cache.metadata(pod("c", "rs-1", "sha256:1"), "java.lang:type=Memory", TestConstants.BEARER_TOKEN, service);
+        } finally {
+            cache.close();
+        }
+        assertEquals(2, fetches.get());
+    }
+}
@@ -0,0 +1,78 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jolokia.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class MBeanPageTest {
+
+    private static final List<String> NAMES = List.of(
+            "java.lang.management:type=Other",
+            "java.lang:type=Memory",
+            "java.lang:type=Runtime",
+            "java.lang:type=Threading",
+            "org.apache.camel:context=camel-1,name=route1,type=routes",
+            "org.apache.camel:context=camel-1,name=route2,type=routes",
+            "org.apache.camel:context=camel-1,type=context");
+
+    @SuppressWarnings("unchecked")
+    private static List<String> mbeans(JSONObject page) {
+        return (List<String>) page.get("mbeans");
+    }
+
+    @Test
+    public void testPage_followsCursor() {
+        List<String> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            JSONObject page = MBeanPage.page(NAMES, null, cursor, 3);
+            all.addAll(mbeans(page));
+            cursor = (String) page.get("nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(NAMES, all);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    public void testPage_domain() {
+        JSONObject page = MBeanPage.page(NAMES, "java.lang", null, 10);
+        assertEquals(NAMES.subList(1, 4), mbeans(page));
+        assertFalse(page.containsKey("nextCursor"));
+    }
+
+    @Test
+    public void testPage_pattern() {
+        JSONObject page = MBeanPage.page(NAMES, "org.apache.camel:type=routes,*", null, 1);
+        assertEquals(List.of(NAMES.get(4)), mbeans(page));
+
+        page = MBeanPage.page(NAMES, "org.apache.camel:type=routes,*", (String) page.get("nextCursor"), 1);
+        assertEquals(List.of(NAMES.get(5)), mbeans(page));
+        assertFalse(page.containsKey("nextCursor"));
+
+        assertEquals(List.of(NAMES.get(0)), mbeans(MBeanPage.page(NAMES, "*.management:*", null, 10)));
+    }
+
+    @Test
+    public void testPage_cursorSurvivesUnregistration() {
+        String cursor = MBeanPage.encode("java.lang:type=Runtime");
+        List<String> remaining = new ArrayList<>(NAMES);
+        remaining.remove("java.lang:type=Runtime");
+
+        assertEquals(List.of("java.lang:type=Threading"), mbeans(MBeanPage.page(remaining, null, cursor, 1)));
+    }
+
+    @Test
+    public void testPage_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> MBeanPage.page(NAMES, "java.lang:type=Memory,", null, 10));
+        assertThrows(IllegalArgumentException.class, () -> MBeanPage.page(NAMES, null, "not a cursor!", 10));
+    }
+}
@@ -0,0 +1,268 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.quarkiverse.mcp.server.test.McpAssured;
+import io.quarkiverse.mcp.server.test.McpAssured.McpStreamableTestClient;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.kubernetes.client.KubernetesServer;
+import io.quarkus.test.kubernetes.client.KubernetesTestServer;
+import io.quarkus.test.kubernetes.client.WithKubernetesTestServer;
+import io.vertx.core.MultiMap;
+import jakarta.inject.Inject;
+
+/**
+ * Drives the MCP endpoint with many concurrent sessions calling the version
+ * and readAttribute tools, against the Kubernetes mock server and in-process
+ * stub jolokia agents, then reports the throughput, latency percentiles and
+ * the thread and heap usage of the JVM.
+ *
+ * It is tagged so it only runs with the load-test profile:
+ *
+ * <pre>
+ * ./mvnw test -Pload-test -Djanus.load.sessions=100 -Djanus.load.duration=60
+ * </pre>
+ *
+ * <ul>
+ * <li>janus.load.sessions: the number of concurrent MCP sessions (50)</li>
+ * <li>janus.load.pods: the number of jolokia pods the calls are spread over (10)</li>
+ * <li>janus.load.duration: the seconds over which calls are measured (30)</li>
+ * <li>janus.load.warmup: the seconds of calls made before measuring (5)</li>
+ * <li>janus.load.latency: the milliseconds each agent takes to answer (5)</li>
+ * <li>janus.load.failure-rate: the fraction of agent requests that fail (0.01)</li>
+ * </ul>
+ *
+ * The report is logged and written to target/load-test-report.txt. The load
+ * generator runs in the same JVM as the server, so the thread and heap usage
+ * include its own.
+ */
+@QuarkusTest
+@WithKubernetesTestServer
+@TestProfile(McpLoadTest.LoadProfile.class)
+@Tag("load")
+public class McpLoadTest extends JanusTest {
+
+    private static final Logger LOG = Logger.getLogger(McpLoadTest.class);
+
+    public static class LoadProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // Serve pods from the index, as in production, and keep logging off the hot path
+            return Map.of("janus.pod-index.enabled", "true", "janus.pod-index.namespaces", NAMESPACE,
+                    "janus.mcp.log.level", "INFO", "quarkus.mcp.server.traffic-logging.enabled", "false");
+        }
+    }
+
+    private static final int SESSIONS = Integer.getInteger("janus.load.sessions", 50);
+    private static final int PODS = Integer.getInteger("janus.load.pods", 10);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("janus.load.duration", 30));
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("janus.load.warmup", 5));
+    private static final long LATENCY_MILLIS = Long.getLong("janus.load.latency", 5);
+    private static final double FAILURE_RATE = Double.parseDouble(System.getProperty("janus.load.failure-rate", "0.01"));
+
+    private static final String READ_RESPONSE = "{\"request\":{\"type\":\"read\"},\"value\":\"MyCamel\",\"status\":200,\"timestamp\":1700000000}";
+
+    @TestHTTPResource
+    private URI testUri;
+
+    @KubernetesTestServer
+    private KubernetesServer mockServer;
+
+    @Inject
+    private KubernetesClient kClient;
+
+    @Inject
+    private PodIndex podIndex;
+
+    @ConfigProperty(name = "quarkus.mcp.server.sse.root-path")
+    private String mcpPath;
+
+    private final List<JolokiaStubServer> agents = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        expectTokenReviews(mockServer.getKubernetesMockServer());
+
+        for (int i = 0; i < PODS; i++) {
+            JolokiaStubServer agent = JolokiaStubServer.start();
+            agent.respond(McpLoadTest::answer);
+            agents.add(agent);
+            kClient.pods().resource(buildStubPod(agent).editMetadata().withName("load-" + i).endMetadata().build())
+                    .create();
+        }
+
+        await(() -> podIndex.size() >= PODS);
+    }
+
+    @AfterEach
+    public void teardown() {
+        agents.forEach(JolokiaStubServer::close);
+        kClient.pods().inAnyNamespace().delete();
+    }
+
+    private static String answer(JolokiaStubServer.Request request) {
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (ThreadLocalRandom.current().nextDouble() < FAILURE_RATE) {
+            throw new IllegalStateException("Injected agent failure");
+        }
+        return request.body().contains("\"version\"") ? JolokiaStubServer.VERSION_RESPONSE : READ_RESPONSE;
+    }
+
+    /**
+     * The latencies of the calls of one session once warmed up, in nanoseconds.
+     */
+    private static class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        void record(long nanos, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (error) {
+                errors++;
+            }
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        McpAssured.baseUri = testUri;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicLong maxHeap = new AtomicLong();
+        long deadline = System.nanoTime() + WARMUP.plus(DURATION).toNanos();
+
+        List<Recorder> recorders = new ArrayList<>();
+        List<Future<?>> sessions = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < SESSIONS; i++) {
+                Recorder recorder = new Recorder();
+                recorders.add(recorder);
+                sessions.add(executor.submit(() -> session(recorder, measuring, deadline)));
+            }
+
+            Thread.sleep(WARMUP.toMillis());
+            System.gc();
+            threads.resetPeakThreadCount();
+            measuring.set(true);
+            long started = System.nanoTime();
+            while (System.nanoTime() < deadline) {
+                maxHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                Thread.sleep(100);
+            }
+            for (Future<?> session : sessions) {
+                session.get();
+            }
+            long elapsed = System.nanoTime() - started;
+
+            report(recorders, elapsed, threads.getPeakThreadCount(), threads.getThreadCount(), maxHeap.get());
+        }
+    }
+
+    private void session(Recorder recorder, AtomicBoolean measuring, long deadline) {
+        McpStreamableTestClient client = McpAssured.newStreamableClient()
+                .setMcpPath(mcpPath)
+                .setAdditionalHeaders(message -> MultiMap.caseInsensitiveMultiMap()
+                        .add("Authorization", TestConstants.bearerTokenHeader(BEARER_TOKEN)))
+                .build()
+                .connect();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            String pod = "load-" + random.nextInt(PODS);
+            boolean[] error = new boolean[1];
+            long start = System.nanoTime();
+            if (random.nextBoolean()) {
+                client.when().toolsCall("version", Map.of("namespace", NAMESPACE, "podName", pod),
+                        r -> error[0] = r.isError()).thenAssertResults();
+            } else {
+                client.when().toolsCall("readAttribute", Map.of("namespace", NAMESPACE, "podName", pod,
+                        "mbean", MBEAN, "attribute", MBEAN_ATTRIBUTE), r -> error[0] = r.isError()).thenAssertResults();
+            }
+            if (measuring.get()) {
+                recorder.record(System.nanoTime() - start, error[0]);
+            }
+        }
+    }
+
+    private static void report(List<Recorder> recorders, long elapsedNanos, int peakThreads, int threads, long maxHeap)
+            throws Exception {
+        int calls = recorders.stream().mapToInt(recorder -> recorder.count).sum();
+        int errors = recorders.stream().mapToInt(recorder -> recorder.errors).sum();
+        long[] latencies = new long[calls];
+        int offset = 0;
+        for (Recorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, latencies, offset, recorder.count);
+            offset += recorder.count;
+        }
+        Arrays.sort(latencies);
+
+        String report = String.format("""
+                MCP load test
+                  sessions:        %d over %d pods, agent latency %dms, agent failure rate %.3f
+                  duration:        %.1fs after %ds of warmup
+                  calls:           %d (%d errors)
+                  throughput:      %.1f calls/s
+                  latency p50:     %.2fms
+                  latency p99:     %.2fms
+                  latency p999:    %.2fms
+                  latency max:     %.2fms
+                  threads:         %d peak, %d at the end
+                  heap used:       %.1fMB at most
+                """, SESSIONS, PODS, LATENCY_MILLIS, FAILURE_RATE, elapsedNanos / 1e9, WARMUP.toSeconds(), calls,
+                errors, calls / (elapsedNanos / 1e9), millis(latencies, 0.50), millis(latencies, 0.99),
+                millis(latencies, 0.999), millis(latencies, 1.0), peakThreads, threads, maxHeap / (1024.0 * 1024.0));
+
+        LOG.info(report);
+        Files.writeString(Path.of("target", "load-test-report.txt"), report);
+
+        assertTrue(calls > 0, "No calls completed");
+        assertTrue(errors < calls, "Every call failed");
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
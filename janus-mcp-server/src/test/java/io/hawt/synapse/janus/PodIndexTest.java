@@ -0,0 +1,139 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.hawt.synapse.jolokia.JolokiaClientFactory;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.kubernetes.client.WithKubernetesTestServer;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+@WithKubernetesTestServer
+@TestProfile(PodIndexTest.PodIndexProfile.class)
+public class PodIndexTest extends JanusTest {
+
+    public static class PodIndexProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("janus.pod-index.enabled", "true", "janus.pod-index.namespaces", NAMESPACE);
+        }
+    }
+
+    @Inject
+    private KubernetesClient kClient;
+
+    @Inject
+    private PodIndex podIndex;
+
+    @Inject
+    private JolokiaClientFactory jolokiaClientFactory;
+
+    @AfterEach
+    public void cleanup() {
+        kClient.pods().inAnyNamespace().delete();
+    }
+
+    @Test
+    public void testIndex_tracksPodLifecycle() throws Exception {
+        kClient.pods().resource(buildPod(2, 2).build()).create();
+        await(() -> podIndex.entry(NAMESPACE, POD_NAME).isPresent());
+
+        PodIndex.Entry entry = podIndex.entry(NAMESPACE, POD_NAME).get();
+        assertNotNull(entry.jolokiaUrl());
+        assertEquals(String.format("%s://%s:%d%s", JolokiaConnection.DEFAULT_JOLOKIA_PROTOCOL, POD_IP,
+                JOLOKIA_CONTAINER_PORT, JolokiaConnection.DEFAULT_JOLOKIA_PATH), entry.jolokiaUrl().toString());
+        assertEquals(entry.jolokiaUrl(), podIndex.connectionURL(podIndex.pod(NAMESPACE, POD_NAME)));
+
+        // A restarted pod comes back with a new ip address
+        kClient.pods().inNamespace(NAMESPACE).withName(POD_NAME)
+                .edit(pod -> new PodBuilder(pod).editStatus().withPodIP("10.0.0.11").endStatus().build());
+        await(() -> podIndex.entry(NAMESPACE, POD_NAME).get().jolokiaUrl().getHost().equals("10.0.0.11"));
+
+        kClient.pods().inNamespace(NAMESPACE).withName(POD_NAME).delete();
+        await(() -> podIndex.entry(NAMESPACE, POD_NAME).isEmpty());
+    }
+
+    @Test
+    public void testIndex_releasesEndpointsOfMovedAndDeletedPods() throws Exception {
+        kClient.pods().resource(buildPod(2, 2).build()).create();
+        await(() -> podIndex.entry(NAMESPACE, POD_NAME).isPresent());
+
+        long endpoints = jolokiaClientFactory.size();
+        jolokiaClientFactory.createService(podIndex.entry(NAMESPACE, POD_NAME).get().jolokiaUrl().toString(), BEARER_TOKEN);
+        assertEquals(endpoints + 1, jolokiaClientFactory.size());
+
+        // The endpoint at the old address is released when the pod moves
+        kClient.pods().inNamespace(NAMESPACE).withName(POD_NAME)
+                .edit(pod -> new PodBuilder(pod).editStatus().withPodIP("10.0.0.11").endStatus().build());
+        await(() -> jolokiaClientFactory.size() == endpoints);
+
+        jolokiaClientFactory.createService(podIndex.entry(NAMESPACE, POD_NAME).get().jolokiaUrl().toString(), BEARER_TOKEN);
+        assertEquals(endpoints + 1, jolokiaClientFactory.size());
+
+        // and when the pod is deleted
+        kClient.pods().inNamespace(NAMESPACE).withName(POD_NAME).delete();
+        await(() -> jolokiaClientFactory.size() == endpoints);
+    }
+
+    @Test
+    public void testIndex_nonJolokiaPod() throws Exception {
+        kClient.pods().resource(buildPod(1, -1).build()).create();
+        await(() -> podIndex.entry(NAMESPACE, POD_NAME).isPresent());
+
+        assertNull(podIndex.entry(NAMESPACE, POD_NAME).get().jolokiaUrl());
+    }
+
+    @Test
+    public void testIndex_listsJolokiaPodsInOrder() throws Exception {
+        for (String name : List.of("pod-c", "pod-a", "pod-b")) {
+            kClient.pods().resource(buildPod(1, 1).editMetadata().withName(name).addToLabels("app", "camel")
+                    .endMetadata().build()).create();
+        }
+        kClient.pods().resource(buildPod(1, 1).editMetadata().withName("pod-d").addToLabels("app", "other")
+                .endMetadata().build()).create();
+        kClient.pods().resource(buildPod(1, -1).editMetadata().withName("pod-e").endMetadata().build()).create();
+        await(() -> podIndex.size() == 5);
+
+        List<String> first = names(podIndex.jolokiaPods(NAMESPACE, null, null, 2));
+        assertEquals(List.of("pod-a", "pod-b"), first);
+        List<String> next = names(podIndex.jolokiaPods(NAMESPACE, null, PodIndex.key(NAMESPACE, "pod-b"), 10));
+        assertEquals(List.of("pod-c", "pod-d"), next);
+
+        assertEquals(List.of("pod-a", "pod-b", "pod-c"), names(podIndex.jolokiaPods(NAMESPACE, "app=camel", null, 10)));
+        assertEquals(List.of(), podIndex.jolokiaPods(NAMESPACE + "-other", null, null, 10));
+
+        // A pod that no longer exposes its jolokia port drops out of the listing
+        kClient.pods().inNamespace(NAMESPACE).withName("pod-a").delete();
+        await(() -> podIndex.size() == 4);
+        assertEquals(List.of("pod-b", "pod-c", "pod-d"), names(podIndex.jolokiaPods(NAMESPACE, null, null, 10)));
+    }
+
+    private static List<String> names(List<PodIndex.Entry> entries) {
+        return entries.stream().map(entry -> entry.pod().getMetadata().getName()).toList();
+    }
+
+    @Test
+    public void testIndex_unwatchedNamespaceFallsBackToCluster() {
+        String otherNamespace = NAMESPACE + "-other";
+        Pod pod = buildPod(1, 1).editMetadata().withNamespace(otherNamespace).endMetadata().build();
+        kClient.pods().resource(pod).create();
+
+        assertFalse(podIndex.entry(otherNamespace, POD_NAME).isPresent());
+        assertNotNull(podIndex.pod(otherNamespace, POD_NAME));
+        assertNull(podIndex.pod(otherNamespace, "invalid-pod"));
+    }
+}
@@ -0,0 +1,51 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class ShardRingTest {
+
+    private static final List<String> NAMESPACES = IntStream.range(0, 1000).mapToObj(i -> "namespace-" + i).toList();
+
+    @Test
+    public void testRing_spreadsNamespaces() {
+        ShardRing ring = new ShardRing(List.of("janus-0", "janus-1", "janus-2"), 64);
+
+        Map<String, Integer> counts = new HashMap<>();
+        NAMESPACES.forEach(namespace -> counts.merge(ring.owner(namespace), 1, Integer::sum));
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 200 && count < 470, counts.toString()));
+    }
+
+    @Test
+    public void testRing_movesOnlyTheNamespacesOfAJoiningMember() {
+        ShardRing before = new ShardRing(List.of("janus-0", "janus-1", "janus-2"), 64);
+        ShardRing after = new ShardRing(List.of("janus-0", "janus-1", "janus-2", "janus-3"), 64);
+
+        for (String namespace : NAMESPACES) {
+            String owner = after.owner(namespace);
+            assertTrue(owner.equals(before.owner(namespace)) || owner.equals("janus-3"), namespace);
+        }
+    }
+
+    @Test
+    public void testRing_ignoresTheOrderOfTheMembers() {
+        ShardRing ring = new ShardRing(List.of("janus-0", "janus-1"), 16);
+        ShardRing reordered = new ShardRing(List.of("janus-1", "janus-0"), 16);
+
+        NAMESPACES.forEach(namespace -> assertEquals(ring.owner(namespace), reordered.owner(namespace)));
+    }
+
+    @Test
+    public void testRing_empty() {
+        assertNull(new ShardRing(List.of(), 64).owner("namespace-0"));
+    }
+}
@@ -0,0 +1,223 @@
+package io.hawt.synapse.janus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.quarkiverse.mcp.server.test.McpAssured;
+import io.quarkiverse.mcp.server.test.McpAssured.McpStreamableTestClient;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.kubernetes.client.KubernetesServer;
+import io.quarkus.test.kubernetes.client.KubernetesTestServer;
+import io.quarkus.test.kubernetes.client.WithKubernetesTestServer;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+@WithKubernetesTestServer
+@TestProfile(ShardingTest.ShardingProfile.class)
+public class ShardingTest extends JanusTest {
+
+    private static final List<String> NAMESPACES = List.of("team-a", "team-b", "team-c", "team-d", "team-e", "team-f");
+
+    private static final String PEER = "janus-1";
+
+    private static final String PEER_URL = "http://janus-1.janus:8080/janus/mcp";
+
+    public static class ShardingProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("janus.shard.enabled", "true",
+                    "janus.shard.identity", "janus-0",
+                    "janus.shard.lease-namespace", NAMESPACE,
+                    "janus.shard.renew-interval", "200ms",
+                    "janus.pod-index.enabled", "true",
+                    "janus.pod-index.namespaces", String.join(",", NAMESPACES));
+        }
+    }
+
+    @TestHTTPResource
+    private URI testUri;
+
+    @KubernetesTestServer
+    private KubernetesServer mockServer;
+
+    @Inject
+    private KubernetesClient kClient;
+
+    @Inject
+    private ShardCoordinator shards;
+
+    @Inject
+    private PodIndex podIndex;
+
+    @Inject
+    private AttributeCollector attributeCollector;
+
+    @InjectMock
+    HttpServerRequest mockRequest;
+
+    @ConfigProperty(name = "quarkus.mcp.server.sse.root-path")
+    private String mcpPath;
+
+    @BeforeEach
+    public void setup() {
+        McpAssured.baseUri = testUri;
+        expectTokenReviews(mockServer.getKubernetesMockServer());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        kClient.leases().inNamespace(NAMESPACE).withName("janus-" + PEER).delete();
+        kClient.pods().inAnyNamespace().delete();
+    }
+
+    @Test
+    public void testSharding_peerTakesItsNamespaces() throws Exception {
+        for (String namespace : NAMESPACES) {
+            kClient.pods().resource(buildPod(1, 1).editMetadata().withNamespace(namespace).endMetadata().build())
+                    .create();
+        }
+
+        // Alone in the group, this replica watches every namespace
+        assertEquals(List.of("janus-0"), shards.members());
+        await(() -> NAMESPACES.stream().allMatch(namespace -> podIndex.entry(namespace, POD_NAME).isPresent()));
+
+        kClient.leases().inNamespace(NAMESPACE).resource(new LeaseBuilder()
+                .withNewMetadata()
+                    .withName("janus-" + PEER)
+                    .addToLabels(ShardCoordinator.GROUP_LABEL, "janus")
+                    .addToAnnotations(ShardCoordinator.URL_ANNOTATION, PEER_URL)
+                .endMetadata()
+                .withNewSpec()
+                    .withHolderIdentity(PEER)
+                    .withLeaseDurationSeconds(60)
+                    .withRenewTime(ZonedDateTime.now(ZoneOffset.UTC))
+                .endSpec()
+                .build()).create();
+        await(() -> shards.members().size() == 2);
+
+        List<String> peerNamespaces = NAMESPACES.stream().filter(namespace -> PEER.equals(shards.owner(namespace)))
+                .toList();
+        assertFalse(peerNamespaces.isEmpty());
+        assertTrue(peerNamespaces.size() < NAMESPACES.size());
+
+        // The namespaces of the peer are no longer watched, those of this replica still are
+        await(() -> peerNamespaces.stream().allMatch(namespace -> podIndex.entry(namespace, POD_NAME).isEmpty()));
+        for (String namespace : NAMESPACES) {
+            assertEquals(!peerNamespaces.contains(namespace), podIndex.isIndexed(namespace), namespace);
+        }
+
+        // The pods of all namespaces are those of this replica's shard, once its informers have synced
+        await(() -> podIndex.isIndexed(null));
+        List<String> listed = podIndex.jolokiaPods(null, null, null, 100).stream()
+                .map(entry -> entry.pod().getMetadata().getNamespace())
+                .toList();
+        assertEquals(NAMESPACES.stream().filter(namespace -> !peerNamespaces.contains(namespace)).toList(), listed);
+
+        // and requests for their pods are sent to the peer
+        Mockito.when(mockRequest.getHeader("Authorization")).thenReturn(TestConstants.bearerTokenHeader(BEARER_TOKEN));
+        McpStreamableTestClient mcpClient = McpAssured.newStreamableClient().setMcpPath(mcpPath).build().connect();
+        mcpClient.when().toolsCall("version", Map.of("namespace", peerNamespaces.get(0), "podName", POD_NAME), r -> {
+            assertTrue(r.isError());
+            assertTrue(r.content().get(0).asText().text().contains(PEER_URL), r.toString());
+        }).thenAssertResults();
+
+        // Once the peer leaves its namespaces come back
+        kClient.leases().inNamespace(NAMESPACE).withName("janus-" + PEER).delete();
+        await(() -> shards.members().size() == 1);
+        await(() -> NAMESPACES.stream().allMatch(namespace -> podIndex.entry(namespace, POD_NAME).isPresent()));
+    }
+
+    @Test
+    public void testSharding_leaseWithoutUrlIsSkipped() throws Exception {
+        kClient.leases().inNamespace(NAMESPACE).resource(new LeaseBuilder()
+                .withNewMetadata()
+                    .withName("janus-" + PEER)
+                    .addToLabels(ShardCoordinator.GROUP_LABEL, "janus")
+                .endMetadata()
+                .withNewSpec()
+                    .withHolderIdentity(PEER)
+                    .withLeaseDurationSeconds(60)
+                    .withRenewTime(ZonedDateTime.now(ZoneOffset.UTC))
+                .endSpec()
+                .build()).create();
+        shards.renew();
+        assertEquals(List.of("janus-0"), shards.members());
+
+        // The renewals go on and take the peer in once its lease has a url
+        kClient.leases().inNamespace(NAMESPACE).withName("janus-" + PEER)
+                .edit(lease -> new LeaseBuilder(lease).editMetadata()
+                        .addToAnnotations(ShardCoordinator.URL_ANNOTATION, PEER_URL)
+                        .endMetadata().build());
+        await(() -> shards.members().size() == 2);
+        assertEquals(Optional.of(PEER_URL), NAMESPACES.stream().filter(namespace -> PEER.equals(shards.owner(namespace)))
+                .findFirst().flatMap(shards::ownerUrl));
+
+        kClient.leases().inNamespace(NAMESPACE).withName("janus-" + PEER).delete();
+        await(() -> shards.members().size() == 1);
+    }
+
+    @Test
+    public void testSharding_collectorReleasesTheSeriesOfOtherReplicas() throws Exception {
+        for (String namespace : NAMESPACES) {
+            kClient.pods().resource(buildPod(1, 1).editMetadata().withNamespace(namespace).endMetadata().build())
+                    .create();
+        }
+        await(() -> NAMESPACES.stream().allMatch(namespace -> podIndex.entry(namespace, POD_NAME).isPresent()));
+        List<AttributeCollector.Series> collected = NAMESPACES.stream()
+                .map(namespace -> attributeCollector.subscribe(namespace, POD_NAME, MBEAN, MBEAN_ATTRIBUTE, null,
+                        BEARER_TOKEN))
+                .toList();
+
+        try {
+            kClient.leases().inNamespace(NAMESPACE).resource(new LeaseBuilder()
+                    .withNewMetadata()
+                        .withName("janus-" + PEER)
+                        .addToLabels(ShardCoordinator.GROUP_LABEL, "janus")
+                        .addToAnnotations(ShardCoordinator.URL_ANNOTATION, PEER_URL)
+                    .endMetadata()
+                    .withNewSpec()
+                        .withHolderIdentity(PEER)
+                        .withLeaseDurationSeconds(60)
+                        .withRenewTime(ZonedDateTime.now(ZoneOffset.UTC))
+                    .endSpec()
+                    .build()).create();
+            await(() -> shards.members().size() == 2);
+
+            // The series of the namespaces moved to the peer are released, those of this replica kept
+            List<String> owned = NAMESPACES.stream().filter(shards::owns).toList();
+            await(() -> attributeCollector.allSeries(BEARER_TOKEN).stream()
+                    .allMatch(series -> owned.contains(series.namespace())));
+            assertEquals(owned, attributeCollector.allSeries(BEARER_TOKEN).stream()
+                    .map(AttributeCollector.Series::namespace).sorted().toList());
+
+            // and the series of a pod deleted from the index as soon as it is scraped again
+            kClient.pods().inNamespace(owned.get(0)).withName(POD_NAME).delete();
+            await(() -> attributeCollector.allSeries(BEARER_TOKEN).stream()
+                    .noneMatch(series -> series.namespace().equals(owned.get(0))));
+            assertEquals(owned.size() - 1, attributeCollector.allSeries(BEARER_TOKEN).size());
+        } finally {
+            collected.forEach(series -> attributeCollector.unsubscribe(series.id(), BEARER_TOKEN));
+        }
+    }
+}
@@ -6,8 +6,14 @@ public interface TestConstants {
 
     String BEARER_TOKEN = "your-mock-bearer-token";
 
+    String OTHER_BEARER_TOKEN = "your-other-mock-bearer-token";
+
     String NAMESPACE = "hawtio-dev";
 
+    String USER = "system:serviceaccount:" + NAMESPACE + ":reader";
+
+    String USER_GROUP = "system:serviceaccounts";
+
     String POD_NAME = "hawtio-example-999";
 
     String POD_IP = "10.0.0.10";